@@ -0,0 +1,79 @@
+#!/usr/bin/env bash
+#
+# Startup-time and first-request-latency benchmark.
+#
+#   ./mvnw -Pfast-startup package        # builds target/*.jar, target/app/ and target/app/app.jsa
+#   scripts/startup-benchmark.sh [default|fast|both] [runs]
+#
+# For each run the app is started cold, and we record:
+#   startup  - launch until the HTTP port accepts connections
+#   first    - latency of the first request (POST /api/auth/login with unknown
+#              credentials: goes through the filter chain, controller and Mongo)
+# Requires MongoDB at the configured URI and a free port 8080.
+
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+MODE="${1:-both}"
+RUNS="${2:-5}"
+PORT="${PORT:-8080}"
+JAR="$(ls target/smartnotes-*.jar | grep -v original | head -n 1)"
+APP_DIR="target/app"
+
+now_ms() { echo $(( $(date +%s%N) / 1000000 )); }
+
+start_app() {
+  case "$1" in
+    default)
+      java -jar "$JAR" --server.port="$PORT" > target/benchmark-app.log 2>&1 &
+      ;;
+    fast)
+      (cd "$APP_DIR" && exec java -XX:SharedArchiveFile=app.jsa -Xlog:cds=off \
+          -Dspring.aot.enabled=true -Dspring.profiles.active=fast \
+          -jar "$(basename "$JAR")" --server.port="$PORT") > target/benchmark-app.log 2>&1 &
+      ;;
+  esac
+  echo $!
+}
+
+wait_for_port() {
+  for _ in $(seq 1 600); do
+    if (exec 3<>"/dev/tcp/127.0.0.1/$PORT") 2>/dev/null; then
+      return 0
+    fi
+    sleep 0.05
+  done
+  echo "App did not open port $PORT, see target/benchmark-app.log" >&2
+  return 1
+}
+
+run_mode() {
+  local mode="$1" startup_total=0 first_total=0
+  echo "== $mode =="
+  for run in $(seq 1 "$RUNS"); do
+    local start pid ready first_ms
+    start=$(now_ms)
+    pid=$(start_app "$mode")
+    wait_for_port
+    ready=$(now_ms)
+
+    first_ms=$(curl -s -o /dev/null -w '%{time_total}' -X POST "http://127.0.0.1:$PORT/api/auth/login" \
+        -H 'Content-Type: application/json' -d '{"email":"bench@example.com","password":"bench"}' \
+        | awk '{ printf "%d", $1 * 1000 }')
+
+    kill "$pid" 2>/dev/null || true
+    while kill -0 "$pid" 2>/dev/null; do sleep 0.05; done
+
+    echo "run $run: startup $(( ready - start )) ms, first request ${first_ms} ms"
+    startup_total=$(( startup_total + ready - start ))
+    first_total=$(( first_total + first_ms ))
+  done
+  echo "mean: startup $(( startup_total / RUNS )) ms, first request $(( first_total / RUNS )) ms"
+}
+
+case "$MODE" in
+  default|fast) run_mode "$MODE" ;;
+  both) run_mode default; run_mode fast ;;
+  *) echo "usage: $0 [default|fast|both] [runs]" >&2; exit 1 ;;
+esac
@@ -0,0 +1,184 @@
+package com.nagesh.notes.smartnotes.controller;
+
+import com.nagesh.notes.smartnotes.model.Attachment;
+import com.nagesh.notes.smartnotes.service.AttachmentService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.*;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Upload and download of note attachments. Bodies are streamed as raw bytes
+ * in both directions and never go through Jackson.
+ */
+@RestController
+@RequestMapping("/api/notes/{noteId}/attachments")
+@CrossOrigin(origins = "http://localhost:3000")
+public class AttachmentController {
+
+    // Tomcat request attributes for zero-copy sendfile
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Blobs are content-addressed, so a URL's bytes never change
+    private static final String IMMUTABLE_CACHE = "private, max-age=31536000, immutable";
+
+    @Autowired
+    private AttachmentService attachmentService;
+
+    // Upload: send the file as the raw request body with its own Content-Type
+    @PostMapping(consumes = MediaType.ALL_VALUE)
+    public ResponseEntity<?> upload(@PathVariable String noteId,
+            @RequestParam String filename,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            InputStream body,
+            @AuthenticationPrincipal String userId) {
+        try {
+            var attachment = attachmentService.addAttachment(noteId, userId, filename, contentType, body);
+            if (attachment.isPresent()) {
+                return ResponseEntity.status(HttpStatus.CREATED).body(attachment.get());
+            } else {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Note not found or not owned by user"));
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to store attachment"));
+        }
+    }
+
+    // Download (supports HTTP Range and conditional requests)
+    @GetMapping("/{hash}")
+    public void download(@PathVariable String noteId,
+            @PathVariable String hash,
+            @AuthenticationPrincipal String userId,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Optional<Attachment> attachment = attachmentService.findAttachment(noteId, userId, hash);
+        Optional<Path> file = attachment.flatMap(attachmentService::blobPath);
+        if (file.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Attachment not found");
+            return;
+        }
+        sendFile(file.get(), attachment.get().getContentType(), "\"" + hash + "\"",
+                attachment.get().getFilename(), request, response);
+    }
+
+    // Thumbnail of an image attachment, generated on first request
+    @GetMapping("/{hash}/thumbnail")
+    public void thumbnail(@PathVariable String noteId,
+            @PathVariable String hash,
+            @RequestParam(defaultValue = "256") int size,
+            @AuthenticationPrincipal String userId,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Optional<Attachment> attachment = attachmentService.findAttachment(noteId, userId, hash);
+        if (attachment.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Attachment not found");
+            return;
+        }
+        Optional<Path> thumb = attachmentService.thumbnailPath(attachment.get(), size);
+        if (thumb.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "No thumbnail for this attachment");
+            return;
+        }
+        sendFile(thumb.get(), MediaType.IMAGE_PNG_VALUE, "\"" + thumb.get().getFileName() + "\"",
+                null, request, response);
+    }
+
+    // Remove an attachment from the note
+    @DeleteMapping("/{hash}")
+    public ResponseEntity<?> delete(@PathVariable String noteId,
+            @PathVariable String hash,
+            @AuthenticationPrincipal String userId) {
+        if (!attachmentService.removeAttachment(noteId, userId, hash)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Attachment not found"));
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private void sendFile(Path file, String contentType, String etag, String filename,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = Files.size(file);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE_CACHE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeHeader != null && length > 0 && (ifRange == null || ifRange.equals(etag))) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                if (ranges.size() == 1) { // multiple ranges: fall back to the full body
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                    if (start > end) { // starts at or past the end, or an empty suffix ("bytes=-0")
+                        throw new IllegalArgumentException("Unsatisfiable range " + rangeHeader);
+                    }
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentType(contentType);
+        response.setContentLengthLong(count);
+        if (filename != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.inline().filename(filename, StandardCharsets.UTF_8).build().toString());
+        }
+        if (HttpMethod.HEAD.matches(request.getMethod()) || count <= 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat streams the file to the socket itself after this method returns
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                position += channel.transferTo(position, end + 1 - position, out);
+            }
+        }
+    }
+}
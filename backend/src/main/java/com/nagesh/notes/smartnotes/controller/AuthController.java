@@ -1,11 +1,13 @@
 package com.nagesh.notes.smartnotes.controller;
 
 import com.nagesh.notes.smartnotes.model.User;
-import com.nagesh.notes.smartnotes.security.JwtUtil;
+import com.nagesh.notes.smartnotes.service.SessionService;
 import com.nagesh.notes.smartnotes.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -17,12 +19,12 @@ import java.util.Map;
 public class AuthController {
 
     private final UserService userService;
-    private final JwtUtil jwtUtil;
+    private final SessionService sessionService;
 
     @Autowired
-    public AuthController(UserService userService, JwtUtil jwtUtil) {
+    public AuthController(UserService userService, SessionService sessionService) {
         this.userService = userService;
-        this.jwtUtil = jwtUtil;
+        this.sessionService = sessionService;
     }
 
     /**
@@ -44,7 +46,7 @@ public class AuthController {
     }
 
     /**
-     * Login user and generate JWT token
+     * Login user and generate JWT access + refresh tokens
      */
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody Map<String, String> credentials) {
@@ -54,10 +56,11 @@ public class AuthController {
 
             User user = userService.login(email, password);
 
-            String token = jwtUtil.generateToken(user.getId());
+            SessionService.Tokens tokens = sessionService.startSession(user.getId());
 
             Map<String, Object> response = new HashMap<>();
-            response.put("token", token);
+            response.put("token", tokens.accessToken());
+            response.put("refreshToken", tokens.refreshToken());
             response.put("userId", user.getId());
             response.put("email", user.getEmail());
             response.put("username", user.getUsername());
@@ -69,4 +72,45 @@ public class AuthController {
                     .body(Map.of("error", e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Exchange a refresh token for a new access + refresh token pair
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody Map<String, String> body) {
+        var tokens = sessionService.refresh(body.get("refreshToken"));
+        if (tokens.isPresent()) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("token", tokens.get().accessToken());
+            response.put("refreshToken", tokens.get().refreshToken());
+            response.put("userId", tokens.get().userId());
+            return ResponseEntity.ok(response);
+        } else {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid or expired refresh token"));
+        }
+    }
+
+    /**
+     * Logout: revoke the current access token and its refresh token
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authHeader,
+            @RequestBody(required = false) Map<String, String> body) {
+        String accessToken = authHeader != null && authHeader.startsWith("Bearer ") ? authHeader.substring(7) : null;
+        String refreshToken = body != null ? body.get("refreshToken") : null;
+        sessionService.logout(accessToken, refreshToken);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Logout from every device (e.g. after a password change)
+     */
+    @PostMapping("/logout-all")
+    public ResponseEntity<?> logoutAll(@AuthenticationPrincipal String userId,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authHeader) {
+        String accessToken = authHeader != null && authHeader.startsWith("Bearer ") ? authHeader.substring(7) : null;
+        sessionService.logoutEverywhere(userId, accessToken);
+        return ResponseEntity.noContent().build();
+    }
+}
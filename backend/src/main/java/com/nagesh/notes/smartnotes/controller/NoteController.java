@@ -1,7 +1,13 @@
 package com.nagesh.notes.smartnotes.controller;
 
 import com.nagesh.notes.smartnotes.model.Note;
+import com.nagesh.notes.smartnotes.model.NotePatchRequest;
+import com.nagesh.notes.smartnotes.model.NoteUpdateRequest;
+import com.nagesh.notes.smartnotes.service.NotePatchService;
 import com.nagesh.notes.smartnotes.service.NoteService;
+import com.nagesh.notes.smartnotes.service.PatchConflictException;
+import com.nagesh.notes.smartnotes.service.SimilarityService;
+import com.nagesh.notes.smartnotes.service.TimelineService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -10,7 +16,11 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @RestController
@@ -21,6 +31,15 @@ public class NoteController {
     @Autowired
     private NoteService noteService;
 
+    @Autowired
+    private SimilarityService similarityService;
+
+    @Autowired
+    private TimelineService timelineService;
+
+    @Autowired
+    private NotePatchService notePatchService;
+
     // Create note
     @PostMapping
     public ResponseEntity<?> create(@RequestBody Note note,
@@ -57,9 +76,66 @@ public class NoteController {
     // Update note
     @PutMapping("/{id}")
     public ResponseEntity<?> update(@PathVariable String id,
-            @RequestBody Note note,
+            @RequestBody NoteUpdateRequest request,
             @AuthenticationPrincipal String userId) {
-        var optionalNote = noteService.updateNote(id, note, userId);
+        var optionalNote = noteService.updateNote(id, request, userId);
+        if (optionalNote.isPresent()) {
+            return ResponseEntity.ok(optionalNote.get());
+        } else {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Note not found or not owned by user"));
+        }
+    }
+
+    // Patch note content with text edits made against a known version.
+    // Only the new version is returned, plus the merged content if other edits were rebased over.
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patch(@PathVariable String id,
+            @RequestBody NotePatchRequest patch,
+            @AuthenticationPrincipal String userId) {
+        try {
+            var result = notePatchService.patchNote(id, patch, userId);
+            if (result.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Note not found or not owned by user"));
+            }
+            Note note = result.get().note();
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("id", note.getId());
+            body.put("version", note.getVersion());
+            body.put("updatedAt", note.getUpdatedAt());
+            body.put("rebased", result.get().rebased());
+            if (result.get().rebased()) {
+                body.put("content", note.getContent());
+            }
+            return ResponseEntity.ok(body);
+        } catch (PatchConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage(), "currentVersion", e.getCurrentVersion()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Autosave: buffer the edit; it is coalesced and written in a later batch
+    @PutMapping("/{id}/autosave")
+    public ResponseEntity<?> autosave(@PathVariable String id,
+            @RequestBody NoteUpdateRequest edit,
+            @AuthenticationPrincipal String userId) {
+        if (noteService.autosaveNote(id, edit, userId)) {
+            return ResponseEntity.accepted().body(Map.of("status", "buffered"));
+        } else {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Note not found or not owned by user"));
+        }
+    }
+
+    // Flush pending autosave (explicit save / editor close)
+    @PostMapping("/{id}/flush")
+    public ResponseEntity<?> flush(@PathVariable String id,
+            @AuthenticationPrincipal String userId) {
+        var optionalNote = noteService.flushNote(id, userId);
         if (optionalNote.isPresent()) {
             return ResponseEntity.ok(optionalNote.get());
         } else {
@@ -112,6 +188,55 @@ public class NoteController {
         }
     }
 
+    // Get bucketed note counts and summaries for a range: from inclusive, to exclusive
+    @GetMapping("/timeline")
+    public ResponseEntity<?> getTimeline(@RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(defaultValue = "day") String bucket,
+            @RequestParam(defaultValue = "UTC") String zone,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @AuthenticationPrincipal String userId) {
+        try {
+            ZoneId zoneId = ZoneId.of(zone);
+            TimelineService.Bucket bucketSize = TimelineService.Bucket.valueOf(bucket.toUpperCase(Locale.ROOT));
+            return ResponseEntity.ok(timelineService.getTimeline(userId,
+                    parseInZone(from, zoneId), parseInZone(to, zoneId),
+                    bucketSize, Math.max(page, 0), Math.min(Math.max(size, 1), 200)));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Invalid timeline request: " + e.getMessage()));
+        }
+    }
+
+    private static ZonedDateTime parseInZone(String value, ZoneId zone) {
+        if (value.length() == 10) { // format: YYYY-MM-DD
+            return LocalDate.parse(value).atStartOfDay(zone);
+        }
+        return LocalDateTime.parse(value).atZone(zone);
+    }
+
+    // Get notes similar to a note
+    @GetMapping("/{id}/related")
+    public ResponseEntity<?> getRelated(@PathVariable String id,
+            @RequestParam(defaultValue = "10") int limit,
+            @AuthenticationPrincipal String userId) {
+        var related = similarityService.findRelated(id, userId, limit);
+        if (related.isPresent()) {
+            return ResponseEntity.ok(related.get());
+        } else {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Note not found or not owned by user"));
+        }
+    }
+
+    // Get likely duplicate notes
+    @GetMapping("/duplicates")
+    public ResponseEntity<List<SimilarityService.DuplicatePair>> getDuplicates(
+            @AuthenticationPrincipal String userId) {
+        return ResponseEntity.ok(similarityService.findDuplicates(userId));
+    }
+
     // Toggle pin
     @PutMapping("/{id}/pin")
     public ResponseEntity<?> togglePin(@PathVariable String id,
@@ -0,0 +1,26 @@
+package com.nagesh.notes.smartnotes.model;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reference from a Note to a file in the blob store. Only metadata lives in
+ * the note document; the bytes are addressed by their SHA-256 hash.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Attachment {
+
+    private String hash; // SHA-256 of the content, hex
+
+    private String filename;
+
+    private String contentType;
+
+    private long size;
+
+    private LocalDateTime uploadedAt;
+}
@@ -0,0 +1,29 @@
+package com.nagesh.notes.smartnotes.model;
+
+import lombok.*;
+
+/**
+ * Where an applied TextEdit landed: content[start, end) was replaced by
+ * insertedLength characters. This is all a rebase needs, so the change log
+ * stores spans instead of the inserted text.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EditSpan {
+
+    private int start;
+
+    private int end;
+
+    private int insertedLength;
+
+    public static EditSpan of(TextEdit edit) {
+        return new EditSpan(edit.getStart(), edit.getEnd(), edit.getText() == null ? 0 : edit.getText().length());
+    }
+
+    public int delta() {
+        return insertedLength - (end - start);
+    }
+}
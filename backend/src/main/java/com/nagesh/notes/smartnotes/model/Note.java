@@ -1,9 +1,12 @@
 package com.nagesh.notes.smartnotes.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -11,6 +14,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Document(collection = "notes")
+@CompoundIndex(name = "user_created_idx", def = "{'userId': 1, 'createdAt': 1}")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -50,4 +54,15 @@ public class Note {
     private boolean archived = false;
 
     private LocalDateTime deletedAt; // Soft delete support
+
+    @Builder.Default
+    private List<Attachment> attachments = List.of(); // Metadata only, bytes are in the blob store
+
+    // Content version for PATCH, bumped on every title/content change (missing = 0 for older notes)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
+    @Builder.Default
+    @JsonIgnore
+    private List<NoteChange> recentChanges = List.of(); // Last few versions, for rebasing patches
 }
@@ -0,0 +1,34 @@
+package com.nagesh.notes.smartnotes.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Pre-aggregated count of a user's live notes created within one UTC hour.
+ * Id is "userId|epochMillisOfHour" so counters can be upserted by id.
+ */
+@Document(collection = "note_activity")
+@CompoundIndex(name = "user_hour_idx", def = "{'userId': 1, 'hour': 1}")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NoteActivity {
+
+    @Id
+    private String id;
+
+    private String userId;
+
+    private Instant hour;
+
+    private long count;
+
+    public static String idFor(String userId, Instant hour) {
+        return userId + "|" + hour.toEpochMilli();
+    }
+}
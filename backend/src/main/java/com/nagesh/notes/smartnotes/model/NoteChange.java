@@ -0,0 +1,24 @@
+package com.nagesh.notes.smartnotes.model;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Log entry for one content version of a note, kept so that a patch made
+ * against an older version can be rebased onto the current one. Every version
+ * bump pushes exactly one entry in the same update, so the last n entries are
+ * versions current-n+1..current.
+ * fullReplace marks changes that cannot be rebased over (PUT, autosave).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NoteChange {
+
+    @Builder.Default
+    private List<EditSpan> edits = List.of();
+
+    private boolean fullReplace;
+}
@@ -0,0 +1,10 @@
+package com.nagesh.notes.smartnotes.model;
+
+import java.util.List;
+
+/**
+ * Body of PATCH /api/notes/{id}: edits against the content at baseVersion,
+ * non-overlapping and all relative to that same content, plus an optional new title.
+ */
+public record NotePatchRequest(Long baseVersion, List<TextEdit> edits, String title) {
+}
@@ -0,0 +1,17 @@
+package com.nagesh.notes.smartnotes.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Lightweight projection of a Note without its content, used for listings.
+ */
+public record NoteSummary(String id,
+                          String title,
+                          List<String> tags,
+                          LocalDateTime createdAt,
+                          LocalDateTime updatedAt,
+                          boolean pinned,
+                          boolean favorite,
+                          boolean archived) {
+}
@@ -0,0 +1,11 @@
+package com.nagesh.notes.smartnotes.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Body of an edit to an existing note. Fields the client leaves out stay
+ * null and are not written; unlike Note, nothing defaults to an empty value.
+ */
+public record NoteUpdateRequest(String title, String content, List<String> tags, LocalDateTime reminder) {
+}
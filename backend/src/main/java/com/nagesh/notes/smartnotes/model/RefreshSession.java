@@ -0,0 +1,34 @@
+package com.nagesh.notes.smartnotes.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * A refresh-token session. Only the SHA-256 hash of the opaque token is stored.
+ */
+@Document(collection = "refresh_sessions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RefreshSession {
+
+    @Id
+    private String id;
+
+    @Indexed
+    private String userId;
+
+    @Indexed(unique = true)
+    private String tokenHash;
+
+    private Instant createdAt;
+
+    @Indexed(expireAfterSeconds = 0) // Mongo TTL removes the session once expired
+    private Date expiresAt;
+}
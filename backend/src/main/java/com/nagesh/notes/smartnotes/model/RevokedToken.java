@@ -0,0 +1,35 @@
+package com.nagesh.notes.smartnotes.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * A revoked access token (id = jti) or, when userWide is set, a cutoff that
+ * revokes every token of the user issued before revokedAt (id = "user:" + userId).
+ * Kept only until the revoked tokens would have expired anyway.
+ */
+@Document(collection = "revoked_tokens")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RevokedToken {
+
+    @Id
+    private String id;
+
+    private String userId;
+
+    private boolean userWide;
+
+    @Indexed
+    private Instant revokedAt;
+
+    @Indexed(expireAfterSeconds = 0)
+    private Date expiresAt;
+}
@@ -0,0 +1,22 @@
+package com.nagesh.notes.smartnotes.model;
+
+import lombok.*;
+
+/**
+ * Replace content[start, end) with text. Offsets are UTF-16 indexes into the
+ * content the edit was made against; an insert has start == end and a delete
+ * has empty text.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TextEdit {
+
+    private int start;
+
+    private int end;
+
+    @Builder.Default
+    private String text = "";
+}
@@ -1,6 +1,10 @@
 package com.nagesh.notes.smartnotes.repository;
 
 import com.nagesh.notes.smartnotes.model.Note;
+import com.nagesh.notes.smartnotes.model.NoteSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Range;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.time.LocalDateTime;
@@ -40,6 +44,9 @@ public interface NoteRepository extends MongoRepository<Note, String> {
     // Find a note by id and userId (to ensure ownership check)
     Optional<Note> findByIdAndUserId(String id, String userId);
 
+    // Cheap ownership check for a live note (no document fetch)
+    boolean existsByIdAndUserIdAndDeletedAtIsNull(String id, String userId);
+
     // Find notes by tag + userId
     List<Note> findByTagsContainingIgnoreCaseAndUserId(String tag, String userId);
 
@@ -60,4 +67,8 @@ public interface NoteRepository extends MongoRepository<Note, String> {
     // Search by title/content for a specific user
     List<Note> findByUserIdAndTitleContainingIgnoreCaseOrUserIdAndContentContainingIgnoreCase(
             String userId1, String title, String userId2, String content);
+
+    // Paginated summaries of live notes in a created-at range (uses user_created_idx)
+    Page<NoteSummary> findByUserIdAndCreatedAtBetweenAndDeletedAtIsNull(
+            String userId, Range<LocalDateTime> createdAt, Pageable pageable);
 }
@@ -0,0 +1,12 @@
+package com.nagesh.notes.smartnotes.repository;
+
+import com.nagesh.notes.smartnotes.model.RefreshSession;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RefreshSessionRepository extends MongoRepository<RefreshSession, String> {
+    void deleteByTokenHash(String tokenHash);
+
+    void deleteByUserId(String userId);
+}
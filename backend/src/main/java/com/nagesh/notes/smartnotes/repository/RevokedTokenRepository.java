@@ -0,0 +1,14 @@
+package com.nagesh.notes.smartnotes.repository;
+
+import com.nagesh.notes.smartnotes.model.RevokedToken;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends MongoRepository<RevokedToken, String> {
+    // Revocations recorded (possibly by another instance) since the last sync
+    List<RevokedToken> findByRevokedAtAfter(Instant since);
+}
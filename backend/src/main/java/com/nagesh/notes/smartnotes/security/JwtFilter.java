@@ -1,5 +1,6 @@
 package com.nagesh.notes.smartnotes.security;
 
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -12,13 +13,20 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 
 @Component
 public class JwtFilter extends OncePerRequestFilter {
 
+    // Reached with an expired access token by design; they authenticate with the refresh token
+    private static final Set<String> TOKEN_OPTIONAL_PATHS = Set.of("/api/auth/refresh", "/api/auth/logout");
+
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private TokenRevocationList revocationList;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
@@ -29,20 +37,23 @@ public class JwtFilter extends OncePerRequestFilter {
             String token = authHeader.substring(7);
 
             try {
-                // ✅ Extract userId instead of using validateToken()
-                String userId = jwtUtil.extractUserId(token);
+                // ✅ Parse once, then check the in-memory revocation list
+                Claims claims = jwtUtil.parseToken(token);
+                String userId = claims != null ? claims.getSubject() : null;
 
-                if (userId != null && jwtUtil.validateToken(token)) {
+                if (userId != null && !revocationList.isRevoked(claims)) {
                     UsernamePasswordAuthenticationToken authentication =
                             new UsernamePasswordAuthenticationToken(userId, null, List.of());
                     SecurityContextHolder.getContext().setAuthentication(authentication);
-                } else {
+                } else if (!TOKEN_OPTIONAL_PATHS.contains(request.getRequestURI())) {
                     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                     return;
                 }
             } catch (Exception e) {
-                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                return;
+                if (!TOKEN_OPTIONAL_PATHS.contains(request.getRequestURI())) {
+                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                    return;
+                }
             }
         }
 
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Component;
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.UUID;
 
 @Component
 public class JwtUtil {
@@ -15,7 +16,7 @@ public class JwtUtil {
     @Value("${jwt.secret}")
     private String secret;
 
-    @Value("${jwt.expiration-ms:86400000}") // default: 1 day
+    @Value("${jwt.expiration-ms:900000}") // default: 15 minutes, renewed via refresh token
     private long expirationMs;
 
     private SecretKey getSigningKey() {
@@ -26,6 +27,7 @@ public class JwtUtil {
     // ✅ Generate JWT token for a userId
     public String generateToken(String userId) {
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString()) // jti, used for revocation
                 .setSubject(userId)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expirationMs))
@@ -51,11 +53,19 @@ public class JwtUtil {
         }
     }
 
+    public long getExpirationMs() {
+        return expirationMs;
+    }
+
     // ✅ Validate token (check signature + expiration)
     public boolean validateToken(String token) {
+        return parseToken(token) != null;
+    }
+
+    // ✅ Parse and validate in one pass; returns null if invalid
+    public Claims parseToken(String token) {
         try {
-            extractAllClaims(token); // will throw if invalid
-            return true;
+            return extractAllClaims(token); // will throw if invalid
         } catch (ExpiredJwtException e) {
             System.out.println("JWT expired: " + e.getMessage());
         } catch (UnsupportedJwtException e) {
@@ -67,6 +77,6 @@ public class JwtUtil {
         } catch (IllegalArgumentException e) {
             System.out.println("Empty or null JWT: " + e.getMessage());
         }
-        return false;
+        return null;
     }
 }
\ No newline at end of file
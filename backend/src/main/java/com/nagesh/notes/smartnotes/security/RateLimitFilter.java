@@ -0,0 +1,106 @@
+package com.nagesh.notes.smartnotes.security;
+
+import com.nagesh.notes.smartnotes.security.RateLimiter.EndpointClass;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies {@link RateLimiter} right after JWT authentication so limits are
+ * keyed by userId (or client IP for anonymous calls such as login). Behind a
+ * load balancer the client IP comes from X-Forwarded-For, which Tomcat only
+ * honours from trusted proxies (server.forward-headers-strategy).
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        if (HttpMethod.OPTIONS.matches(request.getMethod())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        EndpointClass endpointClass = classify(request);
+        String clientKey = clientKey(request);
+
+        long waitNanos = rateLimiter.tryAcquire(endpointClass, clientKey);
+        if (waitNanos > 0) {
+            reject(response, waitNanos, "Too many requests");
+            return;
+        }
+
+        if (endpointClass != EndpointClass.SEARCH) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (!rateLimiter.tryEnter(clientKey)) {
+            reject(response, TimeUnit.SECONDS.toNanos(1), "Too many concurrent searches");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            rateLimiter.release(clientKey);
+        }
+    }
+
+    private EndpointClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (path.equals("/api/auth/refresh") || path.equals("/api/auth/logout")) {
+            return EndpointClass.SESSION;
+        }
+        if (path.startsWith("/api/auth/")) {
+            return EndpointClass.LOGIN;
+        }
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return EndpointClass.WRITE;
+        }
+        if (path.startsWith("/api/notes/search")
+                || path.startsWith("/api/notes/tag/")
+                || path.startsWith("/api/notes/date/")
+                || path.startsWith("/api/notes/timeline")
+                || path.startsWith("/api/notes/duplicates")
+                || (path.startsWith("/api/notes/") && path.endsWith("/related"))) {
+            return EndpointClass.SEARCH;
+        }
+        return EndpointClass.READ;
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && !(auth instanceof AnonymousAuthenticationToken)
+                && auth.getPrincipal() instanceof String userId) {
+            return userId;
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos, String message) throws IOException {
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"" + message + "\"}");
+    }
+}
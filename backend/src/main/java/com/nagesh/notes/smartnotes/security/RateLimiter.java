@@ -0,0 +1,129 @@
+package com.nagesh.notes.smartnotes.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory admission control: one token bucket per (client, endpoint class)
+ * plus a cap on concurrent expensive queries per client.
+ *
+ * Buckets use GCRA, so each bucket is a single AtomicLong holding the
+ * "theoretical arrival time" and an admission is one CAS - no locks and no
+ * allocation once the bucket exists.
+ */
+@Component
+public class RateLimiter {
+
+    // SESSION is token refresh and logout: anonymous like LOGIN, but every open tab
+    // calls it, so it must not eat into the login budget of everyone behind one address
+    public enum EndpointClass { LOGIN, SESSION, SEARCH, WRITE, READ }
+
+    private final Map<EndpointClass, Limit> limits = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, ConcurrentHashMap<String, AtomicLong>> buckets = new EnumMap<>(EndpointClass.class);
+    private final ConcurrentHashMap<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    private final int maxInFlight;
+    private final long idleNanos;
+
+    public RateLimiter(@Value("${ratelimit.login.per-minute:10}") int loginPerMinute,
+                       @Value("${ratelimit.login.burst:5}") int loginBurst,
+                       @Value("${ratelimit.session.per-minute:60}") int sessionPerMinute,
+                       @Value("${ratelimit.session.burst:20}") int sessionBurst,
+                       @Value("${ratelimit.search.per-minute:60}") int searchPerMinute,
+                       @Value("${ratelimit.search.burst:10}") int searchBurst,
+                       @Value("${ratelimit.write.per-minute:120}") int writePerMinute,
+                       @Value("${ratelimit.write.burst:30}") int writeBurst,
+                       @Value("${ratelimit.read.per-minute:600}") int readPerMinute,
+                       @Value("${ratelimit.read.burst:100}") int readBurst,
+                       @Value("${ratelimit.search.max-in-flight:2}") int maxInFlight,
+                       @Value("${ratelimit.idle-eviction-ms:600000}") long idleEvictionMs) {
+        limits.put(EndpointClass.LOGIN, new Limit(loginPerMinute, loginBurst));
+        limits.put(EndpointClass.SESSION, new Limit(sessionPerMinute, sessionBurst));
+        limits.put(EndpointClass.SEARCH, new Limit(searchPerMinute, searchBurst));
+        limits.put(EndpointClass.WRITE, new Limit(writePerMinute, writeBurst));
+        limits.put(EndpointClass.READ, new Limit(readPerMinute, readBurst));
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            buckets.put(endpointClass, new ConcurrentHashMap<>());
+        }
+        this.maxInFlight = maxInFlight;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleEvictionMs);
+    }
+
+    /**
+     * Try to take one token for the client.
+     *
+     * @return 0 if admitted, otherwise the nanoseconds to wait before retrying
+     */
+    public long tryAcquire(EndpointClass endpointClass, String clientKey) {
+        Limit limit = limits.get(endpointClass);
+        long now = System.nanoTime();
+        AtomicLong tat = buckets.get(endpointClass).get(clientKey);
+        if (tat == null) {
+            tat = buckets.get(endpointClass).computeIfAbsent(clientKey, k -> new AtomicLong(now));
+        }
+
+        while (true) {
+            long current = tat.get();
+            long base = Math.max(current, now);
+            long wait = base - now - limit.tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (tat.compareAndSet(current, base + limit.interval)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Reserve an in-flight slot for an expensive query. Callers must pair a
+     * successful call with {@link #release(String)}.
+     */
+    public boolean tryEnter(String clientKey) {
+        AtomicInteger counter = inFlight.computeIfAbsent(clientKey, k -> new AtomicInteger());
+        if (counter.incrementAndGet() > maxInFlight) {
+            counter.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public void release(String clientKey) {
+        AtomicInteger counter = inFlight.get(clientKey);
+        if (counter != null) {
+            counter.decrementAndGet();
+        }
+    }
+
+    // Drop buckets that have fully refilled and idle in-flight counters
+    @Scheduled(fixedDelayString = "${ratelimit.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        long cutoff = System.nanoTime() - idleNanos;
+        buckets.values().forEach(map -> map.values().removeIf(tat -> tat.get() - cutoff < 0));
+        // A request racing with removal keeps using its detached counter until it
+        // releases, so at worst one extra query is admitted for that client.
+        inFlight.forEach((key, counter) -> {
+            if (counter.get() == 0) {
+                inFlight.remove(key, counter);
+            }
+        });
+    }
+
+    private static final class Limit {
+        private final long interval;  // nanos between tokens
+        private final long tolerance; // how far ahead of "now" a burst may run
+
+        Limit(int perMinute, int burst) {
+            this.interval = TimeUnit.MINUTES.toNanos(1) / Math.max(perMinute, 1);
+            this.tolerance = interval * (Math.max(burst, 1) - 1);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.nagesh.notes.smartnotes.security;
+
+import com.nagesh.notes.smartnotes.model.RevokedToken;
+import com.nagesh.notes.smartnotes.repository.RevokedTokenRepository;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory view of revoked access tokens, checked by JwtFilter on every request.
+ *
+ * Revoked token ids sit behind a Bloom filter so the common case (token not
+ * revoked) is a handful of bit reads with no map lookup; a hit is confirmed
+ * against the exact set. Entries are dropped once the token's own exp has
+ * passed, and the filter is rebuilt from the exact set after each purge.
+ *
+ * Revocations are written through to Mongo so they survive restarts and are
+ * picked up by other instances on the next sync.
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final int FILTER_BITS = 1 << 20; // 128 KB
+    private static final int FILTER_HASHES = 4;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepo;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    private final ConcurrentHashMap<String, Long> revokedTokens = new ConcurrentHashMap<>(); // jti -> exp millis
+    private final ConcurrentHashMap<String, long[]> userCutoffs = new ConcurrentHashMap<>();  // userId -> {cutoff, exp} millis
+
+    private volatile BloomFilter filter = new BloomFilter();
+    private volatile Instant lastSync = Instant.EPOCH;
+
+    // Is this (already signature-checked) token revoked?
+    public boolean isRevoked(Claims claims) {
+        String tokenId = claims.getId();
+        if (tokenId != null && filter.mightContain(tokenId) && revokedTokens.containsKey(tokenId)) {
+            return true;
+        }
+        if (!userCutoffs.isEmpty() && claims.getIssuedAt() != null) {
+            long[] cutoff = userCutoffs.get(claims.getSubject());
+            // iat has whole-second resolution, so compare against the cutoff's second:
+            // a token issued later in that same second must not be revoked
+            return cutoff != null && claims.getIssuedAt().getTime() < cutoff[0] / 1000 * 1000;
+        }
+        return false;
+    }
+
+    // Revoke a single access token until its expiry
+    public synchronized void revokeToken(String tokenId, String userId, Date expiresAt) {
+        if (tokenId == null || expiresAt == null) {
+            return;
+        }
+        revokedTokenRepo.save(RevokedToken.builder()
+                .id(tokenId)
+                .userId(userId)
+                .revokedAt(Instant.now())
+                .expiresAt(expiresAt)
+                .build());
+        remember(tokenId, expiresAt.getTime());
+    }
+
+    // Revoke every access token issued to the user before the current second
+    // (the caller revokes its own token by jti, see SessionService.logoutEverywhere)
+    public synchronized void revokeAllForUser(String userId) {
+        long now = System.currentTimeMillis();
+        long expiresAt = now + jwtUtil.getExpirationMs();
+        revokedTokenRepo.save(RevokedToken.builder()
+                .id("user:" + userId)
+                .userId(userId)
+                .userWide(true)
+                .revokedAt(Instant.ofEpochMilli(now))
+                .expiresAt(new Date(expiresAt))
+                .build());
+        userCutoffs.put(userId, new long[]{now, expiresAt});
+    }
+
+    // Loaded once the context is up so startup (and CDS training runs) never wait on Mongo
+    @EventListener(ApplicationStartedEvent.class)
+    public void load() {
+        Instant startedAt = Instant.now();
+        revokedTokenRepo.findAll().forEach(this::apply);
+        lastSync = startedAt;
+    }
+
+    // Pick up other instances' revocations and drop entries past their exp
+    @Scheduled(fixedDelayString = "${jwt.revocation-sync-ms:30000}")
+    public synchronized void sync() {
+        Instant startedAt = Instant.now();
+        // Overlap the window a little to tolerate clock skew between instances
+        revokedTokenRepo.findByRevokedAtAfter(lastSync.minusSeconds(5)).forEach(this::apply);
+        lastSync = startedAt;
+
+        long now = System.currentTimeMillis();
+        userCutoffs.values().removeIf(cutoff -> cutoff[1] <= now);
+        if (revokedTokens.values().removeIf(exp -> exp <= now)) {
+            BloomFilter rebuilt = new BloomFilter();
+            revokedTokens.keySet().forEach(rebuilt::add);
+            filter = rebuilt;
+        }
+    }
+
+    private synchronized void apply(RevokedToken revoked) {
+        if (revoked.getExpiresAt() == null || revoked.getRevokedAt() == null) {
+            return;
+        }
+        long expiresAt = revoked.getExpiresAt().getTime();
+        if (revoked.isUserWide()) {
+            userCutoffs.merge(revoked.getUserId(), new long[]{revoked.getRevokedAt().toEpochMilli(), expiresAt},
+                    (a, b) -> a[0] >= b[0] ? a : b);
+        } else {
+            remember(revoked.getId(), expiresAt);
+        }
+    }
+
+    private void remember(String tokenId, long expiresAt) {
+        revokedTokens.put(tokenId, expiresAt);
+        filter.add(tokenId);
+    }
+
+    private static final class BloomFilter {
+
+        private final AtomicLongArray words = new AtomicLongArray(FILTER_BITS / 64);
+
+        void add(String key) {
+            int h1 = key.hashCode();
+            int h2 = spread(h1);
+            for (int i = 0; i < FILTER_HASHES; i++) {
+                int bit = (h1 + i * h2) & (FILTER_BITS - 1);
+                long mask = 1L << bit;
+                int word = bit >>> 6;
+                long current;
+                do {
+                    current = words.get(word);
+                } while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        boolean mightContain(String key) {
+            int h1 = key.hashCode();
+            int h2 = spread(h1);
+            for (int i = 0; i < FILTER_HASHES; i++) {
+                int bit = (h1 + i * h2) & (FILTER_BITS - 1);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int spread(int h) {
+            h ^= h >>> 16;
+            h *= 0x85EBCA6B;
+            h ^= h >>> 13;
+            return h | 1; // odd step so probes differ
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.nagesh.notes.smartnotes.service;
+
+import com.nagesh.notes.smartnotes.model.Attachment;
+import com.nagesh.notes.smartnotes.model.Note;
+import com.nagesh.notes.smartnotes.repository.NoteRepository;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Attachment references on notes. Bytes go straight between the request and
+ * the BlobStore; the note document only gets a small Attachment entry, updated
+ * in place with $push / $pull rather than a full note save.
+ */
+@Service
+public class AttachmentService {
+
+    @Autowired
+    private NoteRepository noteRepo;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    // Store the upload and attach it to the note (only if owned by user)
+    public Optional<Attachment> addAttachment(String noteId, String userId, String filename,
+                                              String contentType, InputStream body) throws IOException {
+        if (!noteRepo.existsByIdAndUserIdAndDeletedAtIsNull(noteId, userId)) {
+            return Optional.empty();
+        }
+        BlobStore.StoredBlob blob = blobStore.store(body);
+
+        Attachment attachment = Attachment.builder()
+                .hash(blob.hash())
+                .filename(filename)
+                .contentType(contentType != null ? contentType : "application/octet-stream")
+                .size(blob.size())
+                .uploadedAt(LocalDateTime.now())
+                .build();
+
+        // Skip the push if the same content is already attached to this note
+        Query query = Query.query(Criteria.where("_id").is(noteId)
+                .and("userId").is(userId)
+                .and("attachments.hash").ne(blob.hash()));
+        mongoTemplate.updateFirst(query, new Update()
+                .push("attachments", attachment)
+                .set("updatedAt", LocalDateTime.now()), Note.class);
+        return Optional.of(attachment);
+    }
+
+    // Find an attachment reference on a live note owned by the user
+    public Optional<Attachment> findAttachment(String noteId, String userId, String hash) {
+        Query query = Query.query(Criteria.where("_id").is(noteId)
+                .and("userId").is(userId)
+                .and("deletedAt").is(null));
+        query.fields().include("attachments"); // never load the note content here
+        Note note = mongoTemplate.findOne(query, Note.class);
+        if (note == null || note.getAttachments() == null) {
+            return Optional.empty();
+        }
+        return note.getAttachments().stream()
+                .filter(attachment -> attachment.getHash().equals(hash))
+                .findFirst();
+    }
+
+    public Optional<Path> blobPath(Attachment attachment) {
+        return blobStore.find(attachment.getHash());
+    }
+
+    public Optional<Path> thumbnailPath(Attachment attachment, int size) throws IOException {
+        return blobStore.thumbnail(attachment.getHash(), size);
+    }
+
+    // Detach from the note; the blob stays since other notes may share it
+    public boolean removeAttachment(String noteId, String userId, String hash) {
+        Query query = Query.query(Criteria.where("_id").is(noteId)
+                .and("userId").is(userId)
+                .and("deletedAt").is(null)
+                .and("attachments.hash").is(hash));
+        return mongoTemplate.updateFirst(query, new Update()
+                .pull("attachments", new Document("hash", hash))
+                .set("updatedAt", LocalDateTime.now()), Note.class).getModifiedCount() > 0;
+    }
+}
@@ -0,0 +1,443 @@
+package com.nagesh.notes.smartnotes.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nagesh.notes.smartnotes.model.Note;
+import com.nagesh.notes.smartnotes.model.NoteChange;
+import com.nagesh.notes.smartnotes.model.NoteUpdateRequest;
+import com.nagesh.notes.smartnotes.repository.NoteRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Coalesces rapid autosave edits in memory and writes them to Mongo in bulk.
+ *
+ * Each note has at most one pending edit; a new autosave merges its non-null
+ * fields over it. An edit is flushed once the note has been quiet for the
+ * debounce interval (or has been pending for max-delay), on explicit flush,
+ * and on shutdown. Every edit is also appended to a local journal (opened
+ * with DSYNC, so an append is on disk when buffer() returns) that is
+ * replayed on startup, so a crash before flushing loses nothing. An edit
+ * remembers the content version its window started from, and is replayed
+ * only if the note is still at that version.
+ *
+ * Writes are serialized per note, not globally: a note has at most one edit
+ * in flight, which stays visible to reads until Mongo has it, and edits to
+ * other notes keep flowing meanwhile.
+ */
+@Service
+@Lazy(false) // must run its flush schedule even under lazy initialization
+public class AutosaveBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AutosaveBuffer.class);
+
+    @Autowired
+    private NoteRepository noteRepo;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SimilarityService similarityService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${autosave.debounce-ms:2000}")
+    private long debounceMs;
+
+    @Value("${autosave.max-delay-ms:30000}")
+    private long maxDelayMs;
+
+    private final Path journalPath;
+    private FileChannel journal; // swapped by compactJournal() under the write lock
+
+    private final ConcurrentHashMap<String, PendingEdit> pending = new ConcurrentHashMap<>();
+    // Edits claimed by a write that has not finished yet, at most one per note
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    // Appends, claims and releases share the lock; compaction replaces the file and
+    // takes it exclusively, so it always sees each edit as either pending or in flight
+    private final ReadWriteLock journalLock = new ReentrantReadWriteLock();
+
+    public AutosaveBuffer(@Value("${autosave.journal-path:data/autosave.journal}") String journalPath) {
+        this.journalPath = Path.of(journalPath);
+        try {
+            Files.createDirectories(this.journalPath.toAbsolutePath().getParent());
+            this.journal = openJournal();
+        } catch (IOException e) {
+            logger.warn("Autosave journal {} unavailable, edits are not crash-safe", journalPath, e);
+        }
+    }
+
+    // baseVersion is null for edits journaled before versions were recorded
+    public record PendingEdit(String noteId, String userId, String title, String content, List<String> tags,
+                              LocalDateTime reminder, LocalDateTime firstQueuedAt, LocalDateTime lastQueuedAt,
+                              Long baseVersion) {
+
+        PendingEdit merge(PendingEdit newer) {
+            return new PendingEdit(noteId, userId,
+                    newer.title != null ? newer.title : title,
+                    newer.content != null ? newer.content : content,
+                    newer.tags != null ? newer.tags : tags,
+                    newer.reminder != null ? newer.reminder : reminder,
+                    firstQueuedAt, newer.lastQueuedAt, baseVersion);
+        }
+
+        void applyTo(Note note) {
+            if (title != null) note.setTitle(title);
+            if (content != null) note.setContent(content);
+            if (tags != null) note.setTags(tags);
+            if (reminder != null) note.setReminder(reminder);
+            note.setUpdatedAt(lastQueuedAt);
+        }
+
+        boolean changesText() {
+            return title != null || content != null;
+        }
+    }
+
+    private record InFlight(PendingEdit edit, CompletableFuture<Void> done) {}
+
+    /**
+     * Buffer an autosave edit.
+     *
+     * @return false if the note does not exist or is not owned by the user
+     */
+    public boolean buffer(String noteId, String userId, NoteUpdateRequest edit) {
+        PendingEdit existing = pending.get(noteId);
+        Long baseVersion;
+        if (existing == null) {
+            InFlight writing = inFlight.get(noteId);
+            if (writing != null && writing.edit().userId().equals(userId)) {
+                // Starts from the version the in-flight write is about to produce
+                PendingEdit written = writing.edit();
+                baseVersion = written.baseVersion() == null ? null
+                        : written.baseVersion() + (written.changesText() ? 1 : 0);
+            } else {
+                // Ownership is checked once per pending window, not on every keystroke
+                Query query = Query.query(Criteria.where("_id").is(noteId)
+                        .and("userId").is(userId)
+                        .and("deletedAt").is(null));
+                query.fields().include("version");
+                Note note = mongoTemplate.findOne(query, Note.class);
+                if (note == null) {
+                    return false;
+                }
+                baseVersion = note.getVersion();
+            }
+        } else if (!existing.userId().equals(userId)) {
+            return false;
+        } else {
+            baseVersion = existing.baseVersion();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        PendingEdit pendingEdit = new PendingEdit(noteId, userId, edit.title(), edit.content(),
+                edit.tags(), edit.reminder(), now, now, baseVersion);
+        pending.merge(noteId, pendingEdit, PendingEdit::merge);
+        journal(pendingEdit);
+        return true;
+    }
+
+    // Apply any in-flight and pending edit so reads see the latest autosaved state.
+    // Pending is read first: an edit claimed in between is then found in flight.
+    public Note overlay(Note note) {
+        PendingEdit edit = pending.get(note.getId());
+        InFlight writing = inFlight.get(note.getId());
+        if (writing != null) {
+            writing.edit().applyTo(note);
+        }
+        if (edit != null) {
+            edit.applyTo(note);
+        }
+        return note;
+    }
+
+    // Remove and return the pending edit, e.g. when an explicit save supersedes it.
+    // Waits for the note's in-flight write, so the caller's own write always lands after it.
+    public Optional<PendingEdit> take(String noteId, String userId) {
+        while (true) {
+            InFlight writing = inFlight.get(noteId);
+            if (writing != null) {
+                writing.done().join();
+                continue;
+            }
+            PendingEdit edit = pending.get(noteId);
+            if (edit == null) {
+                if (!inFlight.containsKey(noteId)) {
+                    return Optional.empty();
+                }
+            } else if (!edit.userId().equals(userId)) {
+                return Optional.empty();
+            } else if (pending.remove(noteId, edit)) {
+                return Optional.of(edit);
+            }
+        }
+    }
+
+    // Write one note's pending edit now (explicit save / editor close) and wait until it is written
+    public void flush(String noteId, String userId) {
+        while (true) {
+            InFlight writing = inFlight.get(noteId);
+            if (writing != null) {
+                writing.done().join();
+                continue;
+            }
+            PendingEdit edit = pending.get(noteId);
+            if (edit == null || !edit.userId().equals(userId) || write(List.of(edit), null)) {
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${autosave.flush-interval-ms:1000}")
+    public void flushDue() {
+        LocalDateTime quietSince = LocalDateTime.now().minus(Duration.ofMillis(debounceMs));
+        LocalDateTime queuedSince = LocalDateTime.now().minus(Duration.ofMillis(maxDelayMs));
+        List<PendingEdit> due = pending.values().stream()
+                .filter(edit -> edit.lastQueuedAt().isBefore(quietSince) || edit.firstQueuedAt().isBefore(queuedSince))
+                .toList();
+        write(due, null);
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        List.copyOf(inFlight.values()).forEach(writing -> writing.done().join());
+        write(List.copyOf(pending.values()), null);
+        journalLock.writeLock().lock();
+        try {
+            if (journal != null) journal.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close autosave journal {}", journalPath, e);
+        } finally {
+            journalLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replay edits left in the journal by a crash. A replayed edit is only
+     * applied if the note's content has not changed since its window began;
+     * pins, archives and attachments touch updatedAt but not the version, so
+     * they do not hide an edit.
+     *
+     * The journal can hold several windows of one note: one whose write may or
+     * may not have landed before the crash, and the next one, based on the
+     * version that write produces. They are merged and applied at any version
+     * from the first base to the last.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayJournal() {
+        if (!Files.exists(journalPath)) {
+            return;
+        }
+        Map<String, PendingEdit> replayed = new LinkedHashMap<>();
+        Map<String, Long> lastBaseVersions = new HashMap<>();
+        try {
+            for (String line : Files.readAllLines(journalPath, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) continue;
+                PendingEdit edit = objectMapper.readValue(line, PendingEdit.class);
+                replayed.merge(edit.noteId(), edit, PendingEdit::merge);
+                if (edit.baseVersion() != null) {
+                    lastBaseVersions.merge(edit.noteId(), edit.baseVersion(), Math::max);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to read autosave journal {}", journalPath, e);
+            return;
+        }
+        if (!replayed.isEmpty()) {
+            logger.info("Replaying {} autosaved note edit(s) from journal", replayed.size());
+            replayed.forEach(pending::putIfAbsent);
+            write(List.copyOf(replayed.values()), lastBaseVersions);
+        }
+    }
+
+    /**
+     * Write the edits that can be claimed; returns whether any were (whatever the outcome).
+     * For a replay, lastBaseVersions maps each note to the newest base version journaled
+     * for it; otherwise it is null and the edits are written unconditionally.
+     */
+    private boolean write(List<PendingEdit> edits, Map<String, Long> lastBaseVersions) {
+        List<InFlight> claimed = edits.stream()
+                .map(this::claim)
+                .filter(Objects::nonNull)
+                .toList();
+        if (claimed.isEmpty()) {
+            return false;
+        }
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Note.class);
+            for (InFlight writing : claimed) {
+                PendingEdit edit = writing.edit();
+                Criteria criteria = Criteria.where("_id").is(edit.noteId())
+                        .and("userId").is(edit.userId())
+                        .and("deletedAt").is(null);
+                if (lastBaseVersions != null && edit.baseVersion() != null) {
+                    criteria = criteria.andOperator(NotePatchService.versionBetween(edit.baseVersion(),
+                            lastBaseVersions.getOrDefault(edit.noteId(), edit.baseVersion())));
+                } else if (lastBaseVersions != null) {
+                    // Journaled before versions were recorded
+                    criteria = criteria.orOperator(
+                            Criteria.where("updatedAt").lt(edit.lastQueuedAt()),
+                            Criteria.where("updatedAt").exists(false));
+                }
+                Update update = new Update().set("updatedAt", edit.lastQueuedAt());
+                if (edit.title() != null) update.set("title", edit.title());
+                if (edit.content() != null) update.set("content", edit.content());
+                if (edit.tags() != null) update.set("tags", edit.tags());
+                if (edit.reminder() != null) update.set("reminder", edit.reminder());
+                if (edit.changesText()) {
+                    NotePatchService.recordChange(update, NoteChange.builder().fullReplace(true).build());
+                }
+                bulk.updateOne(Query.query(criteria), update);
+            }
+            bulk.execute();
+        } catch (RuntimeException e) {
+            logger.error("Autosave flush of {} note(s) failed, will retry", claimed.size(), e);
+            // Put the edits back, under anything buffered for the same note since,
+            // before releasing them so reads never miss them
+            journalLock.readLock().lock();
+            try {
+                claimed.forEach(writing -> pending.merge(writing.edit().noteId(), writing.edit(),
+                        (newer, failed) -> failed.merge(newer)));
+                release(claimed);
+            } finally {
+                journalLock.readLock().unlock();
+            }
+            return true;
+        }
+
+        release(claimed);
+        reindex(claimed.stream().map(InFlight::edit).toList());
+        compactJournal();
+        return true;
+    }
+
+    // Take a pending edit for writing, unless it was superseded, already claimed, or
+    // the note has a write in flight (the edit then goes out with a later flush)
+    private InFlight claim(PendingEdit edit) {
+        InFlight writing = new InFlight(edit, new CompletableFuture<>());
+        journalLock.readLock().lock();
+        try {
+            if (inFlight.putIfAbsent(edit.noteId(), writing) != null) {
+                return null;
+            }
+            if (!pending.remove(edit.noteId(), edit)) {
+                release(List.of(writing));
+                return null;
+            }
+            return writing;
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    private void release(List<InFlight> claimed) {
+        journalLock.readLock().lock();
+        try {
+            claimed.forEach(writing -> {
+                inFlight.remove(writing.edit().noteId(), writing);
+                writing.done().complete(null);
+            });
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    private void reindex(List<PendingEdit> edits) {
+        List<String> ids = edits.stream()
+                .filter(PendingEdit::changesText)
+                .filter(edit -> similarityService.isIndexed(edit.userId()))
+                .map(PendingEdit::noteId)
+                .toList();
+        if (!ids.isEmpty()) {
+            noteRepo.findAllById(ids).forEach(similarityService::index);
+        }
+    }
+
+    private FileChannel openJournal() throws IOException {
+        return FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+    }
+
+    private void journal(PendingEdit edit) {
+        journalLock.readLock().lock();
+        try {
+            if (journal == null) {
+                return;
+            }
+            ByteBuffer line = ByteBuffer.wrap((objectMapper.writeValueAsString(edit) + "\n").getBytes(StandardCharsets.UTF_8));
+            while (line.hasRemaining()) {
+                journal.write(line);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to journal autosave for note {}", edit.noteId(), e);
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    // Rewrite the journal so it only holds edits not yet written: those of other
+    // notes' writes still in flight, then the pending ones (newer, so replayed last)
+    private void compactJournal() {
+        journalLock.writeLock().lock();
+        try {
+            if (journal == null) {
+                return;
+            }
+            List<PendingEdit> unwritten = new ArrayList<>();
+            inFlight.values().forEach(writing -> unwritten.add(writing.edit()));
+            unwritten.addAll(pending.values());
+            if (unwritten.isEmpty()) {
+                journal.truncate(0);
+                return;
+            }
+            Path tmp = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (PendingEdit edit : unwritten) {
+                    ByteBuffer line = ByteBuffer.wrap((objectMapper.writeValueAsString(edit) + "\n").getBytes(StandardCharsets.UTF_8));
+                    while (line.hasRemaining()) {
+                        out.write(line);
+                    }
+                }
+                out.force(true);
+            }
+            Files.move(tmp, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journal.close();
+            journal = openJournal();
+        } catch (IOException e) {
+            logger.warn("Failed to compact autosave journal {}", journalPath, e);
+        } finally {
+            journalLock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.nagesh.notes.smartnotes.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed file store for attachments on the local disk.
+ *
+ * Blobs are stored at {dir}/ab/cd/abcd... by SHA-256, so identical uploads
+ * share one file. Uploads are streamed to a temp file while hashing and then
+ * moved into place, so a blob path is either absent or complete.
+ */
+@Service
+public class BlobStore {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final int[] THUMBNAIL_SIZES = {64, 128, 256, 512};
+    // A small compressed file can declare a huge image; never decode beyond this
+    private static final long MAX_SOURCE_PIXELS = 100_000_000L;
+
+    private final Path root;
+    private final long maxBytes;
+
+    public record StoredBlob(String hash, long size) {}
+
+    public BlobStore(@Value("${attachments.dir:data/blobs}") String root,
+                     @Value("${attachments.max-bytes:26214400}") long maxBytes) { // default: 25 MB
+        this.root = Path.of(root);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Stream the input into the store.
+     *
+     * @throws IllegalArgumentException if the input is larger than the configured limit
+     */
+    public StoredBlob store(InputStream in) throws IOException {
+        Path tmpDir = root.resolve("tmp");
+        Files.createDirectories(tmpDir);
+        Path tmp = Files.createTempFile(tmpDir, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            long size = 0;
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxBytes) {
+                        throw new IllegalArgumentException("Attachment exceeds " + maxBytes + " bytes");
+                    }
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            }
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = pathFor(hash);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                // Same hash means same bytes, so losing a race to another upload is fine
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new StoredBlob(hash, size);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public Optional<Path> find(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+        Path path = pathFor(hash);
+        return Files.exists(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    /**
+     * PNG thumbnail of an image blob, generated on first request and cached
+     * next to the blobs. Empty if the blob is missing, not a readable image,
+     * or larger than MAX_SOURCE_PIXELS. The source is subsampled while
+     * decoding, so only about the thumbnail's size is ever held in memory.
+     */
+    public Optional<Path> thumbnail(String hash, int requestedSize) throws IOException {
+        Optional<Path> source = find(hash);
+        if (source.isEmpty()) {
+            return Optional.empty();
+        }
+        int size = snapSize(requestedSize);
+        Path thumb = root.resolve("thumbs").resolve(hash + "-" + size + ".png");
+        if (Files.exists(thumb)) {
+            return Optional.of(thumb);
+        }
+
+        BufferedImage image = readSubsampled(source.get(), size);
+        if (image == null) {
+            return Optional.empty();
+        }
+        double scale = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+
+        Files.createDirectories(thumb.getParent());
+        Path tmp = Files.createTempFile(thumb.getParent(), "thumb-", ".part");
+        try {
+            ImageIO.write(scaled, "png", tmp.toFile());
+            Files.move(tmp, thumb, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return Optional.of(thumb);
+    }
+
+    // Decode the image at no less than the target size, checking its dimensions first
+    private static BufferedImage readSubsampled(Path file, int size) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (width <= 0 || height <= 0 || (long) width * height > MAX_SOURCE_PIXELS) {
+                    return null;
+                }
+                int step = Math.max(1, Math.max(width, height) / size);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } catch (IOException | RuntimeException e) {
+                return null; // corrupt or unsupported image
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private Path pathFor(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    // Only a few sizes are generated so the thumbnail cache stays bounded
+    private static int snapSize(int requested) {
+        for (int size : THUMBNAIL_SIZES) {
+            if (requested <= size) return size;
+        }
+        return THUMBNAIL_SIZES[THUMBNAIL_SIZES.length - 1];
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
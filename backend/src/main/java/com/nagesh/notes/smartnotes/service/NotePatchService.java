@@ -0,0 +1,172 @@
+package com.nagesh.notes.smartnotes.service;
+
+import com.nagesh.notes.smartnotes.model.EditSpan;
+import com.nagesh.notes.smartnotes.model.Note;
+import com.nagesh.notes.smartnotes.model.NoteChange;
+import com.nagesh.notes.smartnotes.model.NotePatchRequest;
+import com.nagesh.notes.smartnotes.model.TextEdit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Applies text edits to a note's content instead of replacing it wholesale.
+ *
+ * A patch names the version it was made against. If other patches landed
+ * since then, its edits are shifted past theirs using the note's recent
+ * change log; edits that overlap a concurrent change, or a base older than
+ * the log or a full replace (PUT, autosave), are rejected as a conflict.
+ * The write is conditional on the version read, so two patches racing on
+ * the same version cannot both apply against it.
+ */
+@Service
+public class NotePatchService {
+
+    static final int MAX_CHANGES = 50;
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private AutosaveBuffer autosaveBuffer;
+
+    @Autowired
+    private SimilarityService similarityService;
+
+    public record PatchResult(Note note, boolean rebased) {}
+
+    // Bump the content version and log the change in the same update
+    static Update recordChange(Update update, NoteChange change) {
+        update.inc("version", 1);
+        update.push("recentChanges").slice(-MAX_CHANGES).each(change);
+        return update;
+    }
+
+    // Matches notes whose content version is between from and to (notes without one are at 0)
+    static Criteria versionBetween(long from, long to) {
+        Criteria range = from == to
+                ? Criteria.where("version").is(from)
+                : Criteria.where("version").gte(from).lte(to);
+        return from == 0 ? new Criteria().orOperator(range, Criteria.where("version").exists(false)) : range;
+    }
+
+    /**
+     * Patch a note owned by the user.
+     *
+     * @throws PatchConflictException   if the edits cannot be merged with the current content
+     * @throws IllegalArgumentException if the patch itself is malformed
+     */
+    public Optional<PatchResult> patchNote(String id, NotePatchRequest patch, String userId) {
+        if (patch.baseVersion() == null) {
+            throw new IllegalArgumentException("baseVersion is required");
+        }
+        List<TextEdit> edits = patch.edits() == null ? List.of() : patch.edits().stream()
+                .sorted(Comparator.comparingInt(TextEdit::getStart))
+                .toList();
+
+        // Write out any buffered autosave first so it is part of the version history
+        autosaveBuffer.flush(id, userId);
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Note note = mongoTemplate.findOne(ownedBy(id, userId), Note.class);
+            if (note == null) {
+                return Optional.empty();
+            }
+
+            long current = note.getVersion();
+            long base = patch.baseVersion();
+            if (base > current) {
+                throw new PatchConflictException("Unknown base version " + base, current);
+            }
+            int missed = (int) Math.min(current - base, Integer.MAX_VALUE);
+            List<TextEdit> rebased = rebase(edits, note.getRecentChanges(), missed, current);
+            String content = apply(note.getContent() == null ? "" : note.getContent(), rebased);
+
+            Update update = new Update()
+                    .set("content", content)
+                    .set("updatedAt", LocalDateTime.now());
+            if (patch.title() != null) update.set("title", patch.title());
+            recordChange(update, NoteChange.builder()
+                    .edits(rebased.stream().map(EditSpan::of).toList())
+                    .build());
+
+            Query query = ownedBy(id, userId).addCriteria(versionBetween(current, current));
+            Note updated = mongoTemplate.findAndModify(query, update,
+                    FindAndModifyOptions.options().returnNew(true), Note.class);
+            if (updated != null) {
+                similarityService.index(updated);
+                return Optional.of(new PatchResult(updated, current != base));
+            }
+            // Another write won the race; re-read and rebase again
+        }
+        throw new PatchConflictException("Note is being edited concurrently, retry", -1);
+    }
+
+    private static Query ownedBy(String id, String userId) {
+        return Query.query(Criteria.where("_id").is(id)
+                .and("userId").is(userId)
+                .and("deletedAt").is(null));
+    }
+
+    // Move edits made against version current-missed onto version current
+    static List<TextEdit> rebase(List<TextEdit> edits, List<NoteChange> log, int missed, long current) {
+        if (missed == 0) {
+            return edits;
+        }
+        if (log == null || log.size() < missed) {
+            throw new PatchConflictException("Base version is too old to merge", current);
+        }
+        List<TextEdit> result = edits;
+        for (NoteChange change : log.subList(log.size() - missed, log.size())) {
+            if (change.isFullReplace()) {
+                throw new PatchConflictException("Note was replaced since the base version", current);
+            }
+            result = transform(result, change.getEdits(), current);
+        }
+        return result;
+    }
+
+    // Shift each edit past the already-applied edits that precede it
+    static List<TextEdit> transform(List<TextEdit> edits, List<EditSpan> applied, long current) {
+        List<TextEdit> out = new ArrayList<>(edits.size());
+        for (TextEdit edit : edits) {
+            int shift = 0;
+            for (EditSpan other : applied) {
+                if (other.getEnd() <= edit.getStart()) {
+                    shift += other.delta();
+                } else if (other.getStart() < edit.getEnd()) {
+                    throw new PatchConflictException("Edit at " + edit.getStart() + " overlaps a concurrent change", current);
+                }
+            }
+            out.add(new TextEdit(edit.getStart() + shift, edit.getEnd() + shift, edit.getText()));
+        }
+        return out;
+    }
+
+    // Apply sorted, non-overlapping edits to the content
+    static String apply(String content, List<TextEdit> edits) {
+        StringBuilder sb = new StringBuilder(content.length() + 64);
+        int position = 0;
+        for (TextEdit edit : edits) {
+            if (edit.getStart() < position || edit.getEnd() < edit.getStart() || edit.getEnd() > content.length()) {
+                throw new IllegalArgumentException("Invalid or overlapping edit at " + edit.getStart());
+            }
+            sb.append(content, position, edit.getStart());
+            if (edit.getText() != null) sb.append(edit.getText());
+            position = edit.getEnd();
+        }
+        sb.append(content, position, content.length());
+        return sb.toString();
+    }
+}
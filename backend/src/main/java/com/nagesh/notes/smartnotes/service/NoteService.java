@@ -1,11 +1,19 @@
 package com.nagesh.notes.smartnotes.service;
 
 import com.nagesh.notes.smartnotes.model.Note;
+import com.nagesh.notes.smartnotes.model.NoteChange;
+import com.nagesh.notes.smartnotes.model.NoteUpdateRequest;
 import com.nagesh.notes.smartnotes.repository.NoteRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.*;
 
 @Service
@@ -14,11 +22,29 @@ public class NoteService {
     @Autowired
     private NoteRepository noteRepo;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SimilarityService similarityService;
+
+    @Autowired
+    private TimelineService timelineService;
+
+    @Autowired
+    private AutosaveBuffer autosaveBuffer;
+
     // Create note
     public Note createNote(Note note) {
+        note.setAttachments(List.of()); // attachments are only added through the upload endpoint
+        note.setVersion(0);
+        note.setRecentChanges(List.of());
         note.setCreatedAt(LocalDateTime.now());
         note.setUpdatedAt(LocalDateTime.now());
-        return noteRepo.save(note);
+        Note saved = noteRepo.save(note);
+        similarityService.index(saved);
+        timelineService.recordCreated(saved);
+        return saved;
     }
 
     // Get all active notes for a user
@@ -26,36 +52,69 @@ public class NoteService {
         return noteRepo.findByUserId(userId)
                 .stream()
                 .filter(note -> note.getDeletedAt() == null)
+                .map(autosaveBuffer::overlay)
                 .toList();
     }
 
     // Get note by ID and user (skip soft-deleted)
     public Optional<Note> getNoteByIdAndUser(String id, String userId) {
         return noteRepo.findByIdAndUserId(id, userId)
-                .filter(note -> note.getDeletedAt() == null);
+                .filter(note -> note.getDeletedAt() == null)
+                .map(autosaveBuffer::overlay);
     }
 
-    // Update note (only if owned by user)
-    public Optional<Note> updateNote(String id, Note updatedNote, String userId) {
-        return noteRepo.findByIdAndUserId(id, userId)
-                .filter(note -> note.getDeletedAt() == null)
-                .map(existingNote -> {
-                    if (updatedNote.getTitle() != null) existingNote.setTitle(updatedNote.getTitle());
-                    if (updatedNote.getContent() != null) existingNote.setContent(updatedNote.getContent());
-                    if (updatedNote.getTags() != null) existingNote.setTags(updatedNote.getTags());
-                    if (updatedNote.getReminder() != null) existingNote.setReminder(updatedNote.getReminder());
-                    existingNote.setUpdatedAt(LocalDateTime.now());
-                    return noteRepo.save(existingNote);
-                });
+    // Update note (only if owned by user); supersedes any pending autosave.
+    // Only the given fields are written, so concurrent toggles or attachments are not lost.
+    public Optional<Note> updateNote(String id, NoteUpdateRequest request, String userId) {
+        Optional<AutosaveBuffer.PendingEdit> pending = autosaveBuffer.take(id, userId);
+        String title = request.title() != null ? request.title()
+                : pending.map(AutosaveBuffer.PendingEdit::title).orElse(null);
+        String content = request.content() != null ? request.content()
+                : pending.map(AutosaveBuffer.PendingEdit::content).orElse(null);
+        List<String> tags = request.tags() != null ? request.tags()
+                : pending.map(AutosaveBuffer.PendingEdit::tags).orElse(null);
+        LocalDateTime reminder = request.reminder() != null ? request.reminder()
+                : pending.map(AutosaveBuffer.PendingEdit::reminder).orElse(null);
+
+        Update update = new Update().set("updatedAt", LocalDateTime.now());
+        if (title != null) update.set("title", title);
+        if (content != null) update.set("content", content);
+        if (tags != null) update.set("tags", tags);
+        if (reminder != null) update.set("reminder", reminder);
+        boolean textChanged = title != null || content != null;
+        if (textChanged) {
+            NotePatchService.recordChange(update, NoteChange.builder().fullReplace(true).build());
+        }
+
+        Note saved = mongoTemplate.findAndModify(ownedBy(id, userId), update,
+                FindAndModifyOptions.options().returnNew(true), Note.class);
+        if (saved != null && textChanged) {
+            similarityService.index(saved);
+        }
+        return Optional.ofNullable(saved);
+    }
+
+    // Autosave: buffer the edit in memory; it is written later together with others
+    public boolean autosaveNote(String id, NoteUpdateRequest edit, String userId) {
+        return autosaveBuffer.buffer(id, userId, edit);
+    }
+
+    // Write any pending autosave for the note now (explicit save / editor close)
+    public Optional<Note> flushNote(String id, String userId) {
+        autosaveBuffer.flush(id, userId);
+        return getNoteByIdAndUser(id, userId);
     }
 
     // Soft delete note (only if owned by user)
     public boolean deleteNote(String id, String userId) {
+        autosaveBuffer.take(id, userId);
         return noteRepo.findByIdAndUserId(id, userId)
                 .filter(note -> note.getDeletedAt() == null)
                 .map(note -> {
                     note.setDeletedAt(LocalDateTime.now());
                     noteRepo.save(note);
+                    similarityService.remove(note.getId(), userId);
+                    timelineService.recordDeleted(note);
                     return true;
                 }).orElse(false);
     }
@@ -91,8 +150,8 @@ public class NoteService {
 
     // Get notes by date for a user
     public List<Note> getNotesByDateAndUser(LocalDateTime date, String userId) {
-        LocalDateTime start = date.withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime end = date.withHour(23).withMinute(59).withSecond(59);
+        LocalDateTime start = date.toLocalDate().atStartOfDay();
+        LocalDateTime end = date.toLocalDate().atTime(LocalTime.MAX);
         return noteRepo.findByCreatedAtBetweenAndUserId(start, end, userId)
                 .stream()
                 .filter(note -> note.getDeletedAt() == null)
@@ -103,32 +162,33 @@ public class NoteService {
     public Optional<Note> togglePin(String id, String userId) {
         return noteRepo.findByIdAndUserId(id, userId)
                 .filter(note -> note.getDeletedAt() == null)
-                .map(note -> {
-                    note.setPinned(!note.isPinned());
-                    note.setUpdatedAt(LocalDateTime.now());
-                    return noteRepo.save(note);
-                });
+                .map(note -> setFlag(id, userId, "pinned", !note.isPinned()));
     }
 
     // Toggle favorite
     public Optional<Note> toggleFavorite(String id, String userId) {
         return noteRepo.findByIdAndUserId(id, userId)
                 .filter(note -> note.getDeletedAt() == null)
-                .map(note -> {
-                    note.setFavorite(!note.isFavorite());
-                    note.setUpdatedAt(LocalDateTime.now());
-                    return noteRepo.save(note);
-                });
+                .map(note -> setFlag(id, userId, "favorite", !note.isFavorite()));
     }
 
     // Toggle archive
     public Optional<Note> toggleArchive(String id, String userId) {
         return noteRepo.findByIdAndUserId(id, userId)
                 .filter(note -> note.getDeletedAt() == null)
-                .map(note -> {
-                    note.setArchived(!note.isArchived());
-                    note.setUpdatedAt(LocalDateTime.now());
-                    return noteRepo.save(note);
-                });
+                .map(note -> setFlag(id, userId, "archived", !note.isArchived()));
+    }
+
+    // Write just one flag, leaving content edits made in the meantime alone
+    private Note setFlag(String id, String userId, String field, boolean value) {
+        Update update = new Update().set(field, value).set("updatedAt", LocalDateTime.now());
+        return mongoTemplate.findAndModify(ownedBy(id, userId), update,
+                FindAndModifyOptions.options().returnNew(true), Note.class);
+    }
+
+    private static Query ownedBy(String id, String userId) {
+        return Query.query(Criteria.where("_id").is(id)
+                .and("userId").is(userId)
+                .and("deletedAt").is(null));
     }
 }
@@ -0,0 +1,19 @@
+package com.nagesh.notes.smartnotes.service;
+
+/**
+ * A patch could not be applied on top of the note's current version.
+ * The client should reload the note and re-apply its edits.
+ */
+public class PatchConflictException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public PatchConflictException(String message, long currentVersion) {
+        super(message);
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,124 @@
+package com.nagesh.notes.smartnotes.service;
+
+import com.nagesh.notes.smartnotes.model.RefreshSession;
+import com.nagesh.notes.smartnotes.repository.RefreshSessionRepository;
+import com.nagesh.notes.smartnotes.security.JwtUtil;
+import com.nagesh.notes.smartnotes.security.TokenRevocationList;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Issues short-lived access tokens paired with rotating refresh tokens, and
+ * revokes them on logout.
+ */
+@Service
+public class SessionService {
+
+    private final RefreshSessionRepository sessionRepository;
+    private final MongoTemplate mongoTemplate;
+    private final TokenRevocationList revocationList;
+    private final JwtUtil jwtUtil;
+    private final long refreshExpirationMs;
+    private final SecureRandom random = new SecureRandom();
+
+    public record Tokens(String userId, String accessToken, String refreshToken) {}
+
+    public SessionService(RefreshSessionRepository sessionRepository,
+                          MongoTemplate mongoTemplate,
+                          TokenRevocationList revocationList,
+                          JwtUtil jwtUtil,
+                          @Value("${jwt.refresh-expiration-ms:2592000000}") long refreshExpirationMs) { // default: 30 days
+        this.sessionRepository = sessionRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.revocationList = revocationList;
+        this.jwtUtil = jwtUtil;
+        this.refreshExpirationMs = refreshExpirationMs;
+    }
+
+    /**
+     * Start a new session after a successful login
+     */
+    public Tokens startSession(String userId) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        Instant now = Instant.now();
+        sessionRepository.save(RefreshSession.builder()
+                .userId(userId)
+                .tokenHash(hash(refreshToken))
+                .createdAt(now)
+                .expiresAt(Date.from(now.plusMillis(refreshExpirationMs)))
+                .build());
+
+        return new Tokens(userId, jwtUtil.generateToken(userId), refreshToken);
+    }
+
+    /**
+     * Exchange a refresh token for a new token pair. The old refresh token is
+     * consumed atomically, so of two concurrent refreshes only one succeeds.
+     */
+    public Optional<Tokens> refresh(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            return Optional.empty();
+        }
+        RefreshSession session = mongoTemplate.findAndRemove(
+                Query.query(Criteria.where("tokenHash").is(hash(refreshToken))), RefreshSession.class);
+        return Optional.ofNullable(session)
+                .filter(consumed -> consumed.getExpiresAt().after(new Date()))
+                .map(consumed -> startSession(consumed.getUserId()));
+    }
+
+    /**
+     * End one session: revoke the access token and drop its refresh token
+     */
+    public void logout(String accessToken, String refreshToken) {
+        if (accessToken != null) {
+            Claims claims = jwtUtil.parseToken(accessToken);
+            if (claims != null) {
+                revocationList.revokeToken(claims.getId(), claims.getSubject(), claims.getExpiration());
+            }
+        }
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            sessionRepository.deleteByTokenHash(hash(refreshToken));
+        }
+    }
+
+    /**
+     * End every session of the user, e.g. after a password change. The cutoff
+     * only covers earlier seconds, so the calling token is revoked by id too.
+     */
+    public void logoutEverywhere(String userId, String accessToken) {
+        sessionRepository.deleteByUserId(userId);
+        revocationList.revokeAllForUser(userId);
+        if (accessToken != null) {
+            Claims claims = jwtUtil.parseToken(accessToken);
+            if (claims != null) {
+                revocationList.revokeToken(claims.getId(), claims.getSubject(), claims.getExpiration());
+            }
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
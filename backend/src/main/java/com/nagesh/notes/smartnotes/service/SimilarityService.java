@@ -0,0 +1,331 @@
+package com.nagesh.notes.smartnotes.service;
+
+import com.nagesh.notes.smartnotes.model.Note;
+import com.nagesh.notes.smartnotes.repository.NoteRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Related-notes and near-duplicate detection using MinHash signatures over
+ * word shingles, bucketed with LSH so lookups only touch notes that share at
+ * least one band with the query instead of every note the user owns.
+ *
+ * Indexes live in memory and are built lazily per user on first lookup, then
+ * kept current from NoteService on create, update and soft delete. An index
+ * not looked up for a while is dropped and rebuilt on the next lookup.
+ */
+@Service
+public class SimilarityService {
+
+    private static final int BANDS = 32;
+    private static final int ROWS = 4;
+    private static final int NUM_HASHES = BANDS * ROWS;
+    private static final int SHINGLE_SIZE = 3;
+    private static final double DUPLICATE_THRESHOLD = 0.8;
+
+    private static final long[] SEEDS = new long[NUM_HASHES];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_CAFEL);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            SEEDS[i] = random.nextLong();
+        }
+    }
+
+    @Autowired
+    private NoteRepository noteRepo;
+
+    @Value("${similarity.idle-eviction-ms:1800000}")
+    private long idleEvictionMs;
+
+    private final ConcurrentHashMap<String, UserIndex> indexes = new ConcurrentHashMap<>();
+
+    public record SimilarNote(String noteId, String title, double similarity) {}
+
+    public record DuplicatePair(String noteId, String otherNoteId, double similarity) {}
+
+    // Add or refresh a note's signature (no-op unless the user's index is built or being built)
+    public void index(Note note) {
+        if (note.getId() == null || note.getDeletedAt() != null || !isIndexed(note.getUserId())) {
+            return;
+        }
+        int[] signature = signature(note);
+        indexes.computeIfPresent(note.getUserId(), (userId, index) -> {
+            index.put(note.getId(), note.getTitle(), signature);
+            return index;
+        });
+    }
+
+    // Whether the user's index exists (signatures are kept current only then), even if still loading
+    public boolean isIndexed(String userId) {
+        return indexes.containsKey(userId);
+    }
+
+    // Drop a note from the index (soft delete)
+    public void remove(String noteId, String userId) {
+        indexes.computeIfPresent(userId, (id, index) -> {
+            index.remove(noteId);
+            return index;
+        });
+    }
+
+    // Notes most similar to the given one, best match first
+    public Optional<List<SimilarNote>> findRelated(String noteId, String userId, int limit) {
+        UserIndex index = indexFor(userId);
+        return index.related(noteId).map(matches -> matches.stream()
+                .sorted(Comparator.comparingDouble(SimilarNote::similarity).reversed())
+                .limit(limit)
+                .toList());
+    }
+
+    // Pairs of notes whose estimated similarity is above the duplicate threshold
+    public List<DuplicatePair> findDuplicates(String userId) {
+        return indexFor(userId).duplicates(DUPLICATE_THRESHOLD).stream()
+                .sorted(Comparator.comparingDouble(DuplicatePair::similarity).reversed())
+                .toList();
+    }
+
+    // Drop indexes that have not been looked up recently (never one that is still loading)
+    @Scheduled(fixedDelayString = "${similarity.eviction-interval-ms:300000}")
+    public void evictIdle() {
+        long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(idleEvictionMs);
+        indexes.values().removeIf(index -> index.ready.isDone() && index.lastUsed - cutoff < 0);
+    }
+
+    private UserIndex indexFor(String userId) {
+        UserIndex index = indexes.get(userId);
+        if (index == null) {
+            // The empty index goes into the map before the notes are read, so updates made
+            // while they load are applied to it instead of being dropped; other callers wait
+            UserIndex placeholder = new UserIndex();
+            index = indexes.putIfAbsent(userId, placeholder);
+            if (index == null) {
+                index = placeholder;
+                load(userId, placeholder);
+            }
+        }
+        try {
+            index.ready.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        index.lastUsed = System.nanoTime();
+        return index;
+    }
+
+    private void load(String userId, UserIndex index) {
+        try {
+            noteRepo.findByUserId(userId).stream()
+                    .filter(note -> note.getDeletedAt() == null)
+                    .forEach(note -> index.load(note.getId(), note.getTitle(), signature(note)));
+            index.markReady();
+        } catch (RuntimeException e) {
+            // Let the next lookup try again
+            indexes.remove(userId, index);
+            index.ready.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // MinHash signature of the note's text, or null if it has no words to compare
+    static int[] signature(Note note) {
+        long[] shingles = shingles(
+                (note.getTitle() == null ? "" : note.getTitle()) + " "
+                        + (note.getContent() == null ? "" : note.getContent()));
+        if (shingles.length == 0) {
+            return null;
+        }
+
+        long[] mins = new long[NUM_HASHES];
+        Arrays.fill(mins, Long.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < NUM_HASHES; i++) {
+                long h = mix(shingle ^ SEEDS[i]);
+                if (h < mins[i]) mins[i] = h;
+            }
+        }
+
+        int[] signature = new int[NUM_HASHES];
+        for (int i = 0; i < NUM_HASHES; i++) {
+            signature[i] = (int) (mins[i] ^ (mins[i] >>> 32));
+        }
+        return signature;
+    }
+
+    // Hashes of overlapping word n-grams, sorted and de-duplicated
+    private static long[] shingles(String text) {
+        String[] words = Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .toArray(String[]::new);
+        if (words.length == 0) {
+            return new long[0];
+        }
+
+        int size = Math.min(SHINGLE_SIZE, words.length);
+        long[] hashes = new long[words.length - size + 1];
+        for (int start = 0; start < hashes.length; start++) {
+            long h = 1;
+            for (int i = start; i < start + size; i++) {
+                h = h * 1_000_003L + words[i].hashCode();
+            }
+            hashes[start] = h;
+        }
+
+        Arrays.sort(hashes);
+        int unique = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (i == 0 || hashes[i] != hashes[i - 1]) hashes[unique++] = hashes[i];
+        }
+        return Arrays.copyOf(hashes, unique);
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static double estimate(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a[i] == b[i]) same++;
+        }
+        return (double) same / NUM_HASHES;
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long h = band;
+        for (int i = band * ROWS; i < (band + 1) * ROWS; i++) {
+            h = h * 31 + signature[i];
+        }
+        return mix(h);
+    }
+
+    /**
+     * One user's signatures and LSH buckets. Guarded by its own monitor so
+     * different users never contend. Notes without a signature are kept out
+     * of the buckets, so they are never candidates.
+     *
+     * While the initial load runs, live puts and removes are applied as usual
+     * and remembered, so the (possibly older) loaded copy of those notes is
+     * skipped.
+     */
+    private static final class UserIndex {
+
+        private final Map<String, Entry> entries = new HashMap<>();
+        private final Map<Long, Set<String>> buckets = new HashMap<>();
+        private final CompletableFuture<Void> ready = new CompletableFuture<>();
+        private Set<String> touched = new HashSet<>(); // null once loaded
+        private volatile long lastUsed = System.nanoTime();
+
+        private record Entry(String title, int[] signature, long[] bandKeys) {}
+
+        synchronized void put(String noteId, String title, int[] signature) {
+            touch(noteId);
+            store(noteId, title, signature);
+        }
+
+        synchronized void remove(String noteId) {
+            touch(noteId);
+            drop(noteId);
+        }
+
+        // Add a note read by the initial load, unless it changed since the load began
+        synchronized void load(String noteId, String title, int[] signature) {
+            if (!touched.contains(noteId)) {
+                store(noteId, title, signature);
+            }
+        }
+
+        synchronized void markReady() {
+            touched = null;
+            ready.complete(null);
+        }
+
+        private void touch(String noteId) {
+            if (touched != null) {
+                touched.add(noteId);
+            }
+        }
+
+        private void store(String noteId, String title, int[] signature) {
+            drop(noteId);
+            if (signature == null) {
+                entries.put(noteId, new Entry(title, null, new long[0]));
+                return;
+            }
+            long[] bandKeys = new long[BANDS];
+            for (int band = 0; band < BANDS; band++) {
+                bandKeys[band] = bandKey(signature, band);
+                buckets.computeIfAbsent(bandKeys[band], k -> new HashSet<>()).add(noteId);
+            }
+            entries.put(noteId, new Entry(title, signature, bandKeys));
+        }
+
+        private void drop(String noteId) {
+            Entry old = entries.remove(noteId);
+            if (old == null) {
+                return;
+            }
+            for (long key : old.bandKeys()) {
+                Set<String> bucket = buckets.get(key);
+                if (bucket != null) {
+                    bucket.remove(noteId);
+                    if (bucket.isEmpty()) buckets.remove(key);
+                }
+            }
+        }
+
+        synchronized Optional<List<SimilarNote>> related(String noteId) {
+            Entry entry = entries.get(noteId);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            if (entry.signature() == null) {
+                return Optional.of(List.of());
+            }
+            Set<String> candidates = new HashSet<>();
+            for (long key : entry.bandKeys()) {
+                candidates.addAll(buckets.getOrDefault(key, Set.of()));
+            }
+            candidates.remove(noteId);
+
+            List<SimilarNote> matches = new ArrayList<>(candidates.size());
+            for (String candidateId : candidates) {
+                Entry candidate = entries.get(candidateId);
+                matches.add(new SimilarNote(candidateId, candidate.title(),
+                        estimate(entry.signature(), candidate.signature())));
+            }
+            return Optional.of(matches);
+        }
+
+        synchronized List<DuplicatePair> duplicates(double threshold) {
+            Set<String> seen = new HashSet<>();
+            List<DuplicatePair> pairs = new ArrayList<>();
+            for (Set<String> bucket : buckets.values()) {
+                if (bucket.size() < 2) continue;
+                String[] ids = bucket.toArray(String[]::new);
+                Arrays.sort(ids);
+                for (int i = 0; i < ids.length; i++) {
+                    for (int j = i + 1; j < ids.length; j++) {
+                        if (!seen.add(ids[i] + '|' + ids[j])) continue;
+                        double similarity = estimate(entries.get(ids[i]).signature(), entries.get(ids[j]).signature());
+                        if (similarity >= threshold) {
+                            pairs.add(new DuplicatePair(ids[i], ids[j], similarity));
+                        }
+                    }
+                }
+            }
+            return pairs;
+        }
+    }
+}
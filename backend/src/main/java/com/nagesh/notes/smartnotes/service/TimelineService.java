@@ -0,0 +1,272 @@
+package com.nagesh.notes.smartnotes.service;
+
+import com.nagesh.notes.smartnotes.model.Note;
+import com.nagesh.notes.smartnotes.model.NoteActivity;
+import com.nagesh.notes.smartnotes.model.NoteSummary;
+import com.nagesh.notes.smartnotes.repository.NoteRepository;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.*;
+
+/**
+ * Calendar timeline: per-bucket note counts plus paginated note summaries for
+ * an arbitrary range in the client's time zone.
+ *
+ * Counts come from hourly NoteActivity counters maintained on create and soft
+ * delete, so a year view reads at most one small document per active hour.
+ * Hourly (rather than daily) counters are kept in UTC so they roll up into
+ * local days for any zone whose offset is a whole number of hours; other
+ * zones and unaligned ranges fall back to a $dateTrunc aggregation on the
+ * {userId, createdAt} index, as does everything until the counters have
+ * been backfilled from existing notes.
+ *
+ * Note: Spring Data stores LocalDateTime fields using the JVM default zone,
+ * so createdAt is converted through ZoneId.systemDefault() throughout.
+ */
+@Service
+public class TimelineService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimelineService.class);
+
+    private static final int MAX_BUCKETS = 10_000;
+
+    // Written to the "migrations" collection once the counters have been seeded
+    private static final String BACKFILL_MARKER = "note_activity_backfill";
+
+    public enum Bucket {
+        HOUR("hour"), DAY("day"), WEEK("week"), MONTH("month");
+
+        private final String mongoUnit;
+
+        Bucket(String mongoUnit) {
+            this.mongoUnit = mongoUnit;
+        }
+
+        ZonedDateTime truncate(ZonedDateTime time) {
+            return switch (this) {
+                case HOUR -> time.truncatedTo(ChronoUnit.HOURS);
+                case DAY -> time.toLocalDate().atStartOfDay(time.getZone());
+                case WEEK -> time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                        .atStartOfDay(time.getZone());
+                case MONTH -> time.toLocalDate().withDayOfMonth(1).atStartOfDay(time.getZone());
+            };
+        }
+
+        ZonedDateTime next(ZonedDateTime bucketStart) {
+            return switch (this) {
+                case HOUR -> bucketStart.plusHours(1);
+                case DAY -> bucketStart.toLocalDate().plusDays(1).atStartOfDay(bucketStart.getZone());
+                case WEEK -> bucketStart.toLocalDate().plusWeeks(1).atStartOfDay(bucketStart.getZone());
+                case MONTH -> bucketStart.toLocalDate().plusMonths(1).atStartOfDay(bucketStart.getZone());
+            };
+        }
+    }
+
+    @Autowired
+    private NoteRepository noteRepo;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private volatile boolean activityBackfilled;
+
+    /**
+     * Build the timeline for [from, to).
+     *
+     * @throws IllegalArgumentException if the range is empty or has too many buckets
+     */
+    public Map<String, Object> getTimeline(String userId, ZonedDateTime from, ZonedDateTime to,
+                                           Bucket bucket, int page, int size) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        ZoneId zone = from.getZone();
+
+        Map<Instant, Long> counts = new LinkedHashMap<>();
+        for (ZonedDateTime start = bucket.truncate(from); start.isBefore(to); start = bucket.next(start)) {
+            if (counts.size() >= MAX_BUCKETS) {
+                throw new IllegalArgumentException("Range too large for bucket size " + bucket);
+            }
+            counts.put(start.toInstant(), 0L);
+        }
+
+        if (canUseHourlyCounters(zone, from.toInstant(), to.toInstant()) && isActivityBackfilled()) {
+            countFromActivity(userId, from.toInstant(), to.toInstant(), bucket, zone, counts);
+        } else {
+            countFromNotes(userId, from.toInstant(), to.toInstant(), bucket, zone, counts);
+        }
+
+        List<Map<String, Object>> buckets = new ArrayList<>(counts.size());
+        counts.forEach((start, count) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("start", start.atZone(zone).toOffsetDateTime().toString());
+            entry.put("count", count);
+            buckets.add(entry);
+        });
+
+        Range<LocalDateTime> range = Range.rightOpen(toStoredTime(from.toInstant()), toStoredTime(to.toInstant()));
+        Page<NoteSummary> notes = noteRepo.findByUserIdAndCreatedAtBetweenAndDeletedAtIsNull(
+                userId, range, PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt")));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("zone", zone.getId());
+        response.put("bucket", bucket.name().toLowerCase(Locale.ROOT));
+        response.put("buckets", buckets);
+        response.put("notes", notes.getContent());
+        response.put("page", notes.getNumber());
+        response.put("size", notes.getSize());
+        response.put("totalNotes", notes.getTotalElements());
+        return response;
+    }
+
+    // Count a newly created note in its hourly counter
+    public void recordCreated(Note note) {
+        adjust(note, 1);
+    }
+
+    // Remove a soft-deleted note from its hourly counter
+    public void recordDeleted(Note note) {
+        adjust(note, -1);
+    }
+
+    private void adjust(Note note, long delta) {
+        if (note.getCreatedAt() == null) {
+            return;
+        }
+        Instant hour = note.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().truncatedTo(ChronoUnit.HOURS);
+        Query query = Query.query(Criteria.where("_id").is(NoteActivity.idFor(note.getUserId(), hour)));
+        Update update = new Update()
+                .setOnInsert("userId", note.getUserId())
+                .setOnInsert("hour", hour)
+                .inc("count", delta);
+        mongoTemplate.upsert(query, update, NoteActivity.class);
+    }
+
+    private void countFromActivity(String userId, Instant from, Instant to, Bucket bucket, ZoneId zone,
+                                   Map<Instant, Long> counts) {
+        Query query = Query.query(Criteria.where("userId").is(userId).and("hour").gte(from).lt(to));
+        query.fields().include("hour").include("count");
+        for (NoteActivity activity : mongoTemplate.find(query, NoteActivity.class)) {
+            Instant start = bucket.truncate(activity.getHour().atZone(zone)).toInstant();
+            counts.merge(start, activity.getCount(), Long::sum);
+        }
+    }
+
+    private void countFromNotes(String userId, Instant from, Instant to, Bucket bucket, ZoneId zone,
+                                Map<Instant, Long> counts) {
+        Document trunc = new Document("date", "$createdAt")
+                .append("unit", bucket.mongoUnit)
+                .append("timezone", zone.getId())
+                .append("startOfWeek", "monday");
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("userId", userId)
+                        .append("createdAt", new Document("$gte", Date.from(from)).append("$lt", Date.from(to)))
+                        .append("deletedAt", null)),
+                new Document("$group", new Document("_id", new Document("$dateTrunc", trunc))
+                        .append("count", new Document("$sum", 1))));
+
+        for (Document group : mongoTemplate.getCollection("notes").aggregate(pipeline)) {
+            Instant start = group.getDate("_id").toInstant();
+            counts.merge(start, ((Number) group.get("count")).longValue(), Long::sum);
+        }
+    }
+
+    /**
+     * Hourly UTC counters line up with the client's buckets only when the range
+     * starts and ends on whole hours and the zone never uses a fractional-hour
+     * offset inside it.
+     */
+    static boolean canUseHourlyCounters(ZoneId zone, Instant from, Instant to) {
+        if (!from.truncatedTo(ChronoUnit.HOURS).equals(from) || !to.truncatedTo(ChronoUnit.HOURS).equals(to)) {
+            return false;
+        }
+        ZoneRules rules = zone.getRules();
+        if (rules.getOffset(from).getTotalSeconds() % 3600 != 0) {
+            return false;
+        }
+        for (ZoneOffsetTransition t = rules.nextTransition(from);
+             t != null && t.getInstant().isBefore(to);
+             t = rules.nextTransition(t.getInstant())) {
+            if (t.getOffsetAfter().getTotalSeconds() % 3600 != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static LocalDateTime toStoredTime(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+
+    // Counters are complete once the backfill marker exists (possibly written by another instance)
+    private boolean isActivityBackfilled() {
+        if (!activityBackfilled) {
+            activityBackfilled = mongoTemplate.getCollection("migrations")
+                    .find(new Document("_id", BACKFILL_MARKER)).first() != null;
+        }
+        return activityBackfilled;
+    }
+
+    /**
+     * Seed the hourly counters from existing notes, at every startup until a
+     * run has completed. Counters already updated by live creates and deletes
+     * are overwritten with the absolute count, so an interrupted or repeated
+     * run does no harm.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillActivity() {
+        if (isActivityBackfilled()) {
+            return;
+        }
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("deletedAt", null)
+                        .append("createdAt", new Document("$ne", null))),
+                new Document("$group", new Document("_id", new Document("userId", "$userId")
+                        .append("hour", new Document("$dateTrunc",
+                                new Document("date", "$createdAt").append("unit", "hour"))))
+                        .append("count", new Document("$sum", 1))),
+                new Document("$project", new Document("_id", new Document("$concat", List.of(
+                        "$_id.userId", "|", new Document("$toString", new Document("$toLong", "$_id.hour")))))
+                        .append("userId", "$_id.userId")
+                        .append("hour", "$_id.hour")
+                        .append("count", 1)),
+                new Document("$merge", new Document("into", "note_activity")
+                        .append("whenMatched", "replace")
+                        .append("whenNotMatched", "insert")));
+
+        try {
+            mongoTemplate.getCollection("notes").aggregate(pipeline).toCollection();
+        } catch (RuntimeException e) {
+            logger.error("Backfilling note activity counters failed, will retry on next startup", e);
+            return;
+        }
+        mongoTemplate.getCollection("migrations").replaceOne(
+                new Document("_id", BACKFILL_MARKER),
+                new Document("_id", BACKFILL_MARKER).append("completedAt", new Date()),
+                new ReplaceOptions().upsert(true));
+        activityBackfilled = true;
+        logger.info("Backfilled note activity counters");
+    }
+}
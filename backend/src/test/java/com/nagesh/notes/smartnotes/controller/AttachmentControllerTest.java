@@ -0,0 +1,174 @@
+package com.nagesh.notes.smartnotes.controller;
+
+import com.nagesh.notes.smartnotes.model.Attachment;
+import com.nagesh.notes.smartnotes.service.AttachmentService;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AttachmentControllerTest {
+
+    private static final String HASH = "a".repeat(64);
+    private static final String ETAG = "\"" + HASH + "\"";
+
+    @TempDir
+    Path dir;
+
+    private final AttachmentService attachmentService = mock(AttachmentService.class);
+    private final AttachmentController controller = new AttachmentController();
+    private final HttpServletRequest request = mock(HttpServletRequest.class);
+    private final HttpServletResponse response = mock(HttpServletResponse.class);
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path blob = Files.writeString(dir.resolve(HASH), "0123456789");
+        Attachment attachment = Attachment.builder()
+                .hash(HASH).filename("digits.txt").contentType("text/plain").size(10).build();
+        when(attachmentService.findAttachment("n1", "u1", HASH)).thenReturn(Optional.of(attachment));
+        when(attachmentService.blobPath(attachment)).thenReturn(Optional.of(blob));
+        ReflectionTestUtils.setField(controller, "attachmentService", attachmentService);
+
+        when(request.getMethod()).thenReturn("GET");
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+            }
+        });
+    }
+
+    private String download() throws Exception {
+        controller.download("n1", HASH, "u1", request, response);
+        return body.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void sendsTheWholeFileWithValidators() throws Exception {
+        assertEquals("0123456789", download());
+
+        verify(response, never()).setStatus(anyInt());
+        verify(response).setContentLengthLong(10);
+        verify(response).setHeader(HttpHeaders.ETAG, ETAG);
+        verify(response).setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+    }
+
+    @Test
+    void rangeSendsPartialContent() throws Exception {
+        when(request.getHeader(HttpHeaders.RANGE)).thenReturn("bytes=2-5");
+
+        assertEquals("2345", download());
+
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(response).setHeader(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10");
+        verify(response).setContentLengthLong(4);
+    }
+
+    @Test
+    void suffixRangeSendsTheTail() throws Exception {
+        when(request.getHeader(HttpHeaders.RANGE)).thenReturn("bytes=-3");
+
+        assertEquals("789", download());
+
+        verify(response).setHeader(HttpHeaders.CONTENT_RANGE, "bytes 7-9/10");
+    }
+
+    @Test
+    void rangeWithMatchingIfRangeIsHonoured() throws Exception {
+        when(request.getHeader(HttpHeaders.RANGE)).thenReturn("bytes=0-1");
+        when(request.getHeader(HttpHeaders.IF_RANGE)).thenReturn(ETAG);
+
+        assertEquals("01", download());
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+    }
+
+    @Test
+    void rangeWithStaleIfRangeSendsTheWholeFile() throws Exception {
+        when(request.getHeader(HttpHeaders.RANGE)).thenReturn("bytes=0-1");
+        when(request.getHeader(HttpHeaders.IF_RANGE)).thenReturn("\"something-else\"");
+
+        assertEquals("0123456789", download());
+        verify(response, never()).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+    }
+
+    @Test
+    void matchingIfNoneMatchIsNotModified() throws Exception {
+        when(request.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"other\", " + ETAG);
+
+        assertEquals("", download());
+
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response, never()).getOutputStream();
+    }
+
+    @Test
+    void rangeBeyondTheEndIsNotSatisfiable() throws Exception {
+        when(request.getHeader(HttpHeaders.RANGE)).thenReturn("bytes=20-30");
+
+        assertEquals("", download());
+
+        verify(response).setStatus(416);
+        verify(response).setHeader(HttpHeaders.CONTENT_RANGE, "bytes */10");
+    }
+
+    @Test
+    void emptySuffixRangeIsNotSatisfiable() throws Exception {
+        when(request.getHeader(HttpHeaders.RANGE)).thenReturn("bytes=-0");
+
+        assertEquals("", download());
+
+        verify(response).setStatus(416);
+        verify(response, never()).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+    }
+
+    @Test
+    void headSendsHeadersOnly() throws Exception {
+        when(request.getMethod()).thenReturn("HEAD");
+
+        assertEquals("", download());
+        verify(response).setContentLengthLong(10);
+    }
+
+    @Test
+    void handsRangeToTomcatSendfileWhenSupported() throws Exception {
+        when(request.getAttribute("org.apache.tomcat.sendfile.support")).thenReturn(Boolean.TRUE);
+        when(request.getHeader(HttpHeaders.RANGE)).thenReturn("bytes=2-5");
+
+        assertEquals("", download());
+
+        verify(request).setAttribute("org.apache.tomcat.sendfile.filename", dir.resolve(HASH).toAbsolutePath().toString());
+        verify(request).setAttribute("org.apache.tomcat.sendfile.start", 2L);
+        verify(request).setAttribute("org.apache.tomcat.sendfile.end", 6L);
+    }
+
+    @Test
+    void unknownAttachmentIsNotFound() throws Exception {
+        controller.download("n1", "b".repeat(64), "u1", request, response);
+
+        verify(response).sendError(eq(HttpServletResponse.SC_NOT_FOUND), anyString());
+    }
+}
@@ -0,0 +1,74 @@
+package com.nagesh.notes.smartnotes.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtFilterTest {
+
+    private JwtUtil jwtUtil;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private FilterChain chain;
+    private final JwtFilter filter = new JwtFilter();
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = mock(JwtUtil.class);
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        chain = mock(FilterChain.class);
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(filter, "revocationList", mock(TokenRevocationList.class));
+
+        // An expired or otherwise invalid access token
+        when(request.getHeader(HttpHeaders.AUTHORIZATION)).thenReturn("Bearer expired");
+        when(jwtUtil.parseToken("expired")).thenReturn(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void invalidTokenIsRejectedOnProtectedPaths() throws Exception {
+        when(request.getRequestURI()).thenReturn("/api/notes");
+
+        filter.doFilterInternal(request, response, chain);
+
+        verify(response).setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        verify(chain, never()).doFilter(request, response);
+    }
+
+    @Test
+    void invalidTokenStillReachesLogoutAndRefresh() throws Exception {
+        for (String path : new String[] {"/api/auth/logout", "/api/auth/refresh"}) {
+            when(request.getRequestURI()).thenReturn(path);
+
+            filter.doFilterInternal(request, response, chain);
+
+            assertNull(SecurityContextHolder.getContext().getAuthentication());
+        }
+        verify(response, never()).setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        verify(chain, times(2)).doFilter(request, response);
+    }
+
+    @Test
+    void invalidTokenIsRejectedOnLogoutAll() throws Exception {
+        when(request.getRequestURI()).thenReturn("/api/auth/logout-all");
+
+        filter.doFilterInternal(request, response, chain);
+
+        verify(response).setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+    }
+}
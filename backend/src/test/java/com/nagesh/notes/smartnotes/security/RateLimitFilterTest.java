@@ -0,0 +1,65 @@
+package com.nagesh.notes.smartnotes.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.mockito.Mockito.*;
+
+class RateLimitFilterTest {
+
+    private final RateLimitFilter filter = new RateLimitFilter();
+    private HttpServletResponse response;
+    private FilterChain chain;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Burst of 3 for every class
+        ReflectionTestUtils.setField(filter, "rateLimiter", new RateLimiter(60, 3, 60, 3, 60, 3, 60, 3, 60, 3, 2, 600_000));
+        response = mock(HttpServletResponse.class);
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        chain = mock(FilterChain.class);
+    }
+
+    @Test
+    void refreshDoesNotUseTheLoginBudget() throws Exception {
+        HttpServletRequest login = request("/api/auth/login");
+        for (int i = 0; i < 4; i++) {
+            filter.doFilterInternal(login, response, chain);
+        }
+        verify(chain, times(3)).doFilter(login, response);
+        verify(response).setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+
+        HttpServletRequest refresh = request("/api/auth/refresh");
+        filter.doFilterInternal(refresh, response, chain);
+        verify(chain).doFilter(refresh, response);
+    }
+
+    @Test
+    void anonymousCallersAreKeyedByClientAddress() throws Exception {
+        HttpServletRequest first = request("/api/auth/login");
+        for (int i = 0; i < 4; i++) {
+            filter.doFilterInternal(first, response, chain);
+        }
+
+        HttpServletRequest other = request("/api/auth/login");
+        when(other.getRemoteAddr()).thenReturn("203.0.113.8");
+        filter.doFilterInternal(other, response, chain);
+        verify(chain).doFilter(other, response);
+    }
+
+    private static HttpServletRequest request(String path) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getRequestURI()).thenReturn(path);
+        when(request.getRemoteAddr()).thenReturn("203.0.113.7");
+        return request;
+    }
+}
@@ -0,0 +1,57 @@
+package com.nagesh.notes.smartnotes.security;
+
+import com.nagesh.notes.smartnotes.security.RateLimiter.EndpointClass;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    // 60/min (one token per second) with a burst of 3 for every class; 2 queries in flight
+    private final RateLimiter limiter = new RateLimiter(60, 3, 60, 3, 60, 3, 60, 3, 60, 3, 2, 600_000);
+
+    @Test
+    void admitsBurstThenAsksToWait() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire(EndpointClass.READ, "alice"));
+        }
+
+        long wait = limiter.tryAcquire(EndpointClass.READ, "alice");
+        assertTrue(wait > 0, "fourth request should be limited");
+        assertTrue(wait <= TimeUnit.SECONDS.toNanos(1), "next token is at most one interval away");
+    }
+
+    @Test
+    void bucketsAreSeparatePerClientAndEndpointClass() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire(EndpointClass.SEARCH, "alice");
+        }
+        assertTrue(limiter.tryAcquire(EndpointClass.SEARCH, "alice") > 0);
+
+        assertEquals(0, limiter.tryAcquire(EndpointClass.SEARCH, "bob"));
+        assertEquals(0, limiter.tryAcquire(EndpointClass.WRITE, "alice"));
+    }
+
+    @Test
+    void limitsQueriesInFlightUntilReleased() {
+        assertTrue(limiter.tryEnter("alice"));
+        assertTrue(limiter.tryEnter("alice"));
+        assertFalse(limiter.tryEnter("alice"));
+        assertTrue(limiter.tryEnter("bob"));
+
+        limiter.release("alice");
+        assertTrue(limiter.tryEnter("alice"));
+    }
+
+    @Test
+    void evictionKeepsLimitsOfActiveClients() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire(EndpointClass.LOGIN, "ip:10.0.0.1");
+        }
+        limiter.evictIdle();
+
+        assertTrue(limiter.tryAcquire(EndpointClass.LOGIN, "ip:10.0.0.1") > 0);
+    }
+}
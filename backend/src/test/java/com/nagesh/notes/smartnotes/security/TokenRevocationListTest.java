@@ -0,0 +1,107 @@
+package com.nagesh.notes.smartnotes.security;
+
+import com.nagesh.notes.smartnotes.model.RevokedToken;
+import com.nagesh.notes.smartnotes.repository.RevokedTokenRepository;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationListTest {
+
+    private RevokedTokenRepository revokedTokenRepo;
+    private final TokenRevocationList revocationList = new TokenRevocationList();
+
+    @BeforeEach
+    void setUp() {
+        revokedTokenRepo = mock(RevokedTokenRepository.class);
+        JwtUtil jwtUtil = mock(JwtUtil.class);
+        when(jwtUtil.getExpirationMs()).thenReturn(900_000L);
+        when(revokedTokenRepo.findByRevokedAtAfter(any(Instant.class))).thenReturn(List.of());
+        ReflectionTestUtils.setField(revocationList, "revokedTokenRepo", revokedTokenRepo);
+        ReflectionTestUtils.setField(revocationList, "jwtUtil", jwtUtil);
+    }
+
+    @Test
+    void revokedTokenIdIsRejectedUntilPurged() {
+        revocationList.revokeToken("jti-1", "alice", new Date(System.currentTimeMillis() + 60_000));
+
+        assertTrue(revocationList.isRevoked(claims("jti-1", "alice", new Date())));
+        assertFalse(revocationList.isRevoked(claims("jti-2", "alice", new Date())));
+        verify(revokedTokenRepo).save(any(RevokedToken.class));
+    }
+
+    @Test
+    void userCutoffRevokesOnlyTokensFromEarlierSeconds() {
+        long second = (System.currentTimeMillis() / 1000 - 10) * 1000;
+        // Logout-all recorded half way through the second
+        when(revokedTokenRepo.findByRevokedAtAfter(any(Instant.class))).thenReturn(List.of(RevokedToken.builder()
+                .id("user:alice")
+                .userId("alice")
+                .userWide(true)
+                .revokedAt(Instant.ofEpochMilli(second + 500))
+                .expiresAt(new Date(System.currentTimeMillis() + 60_000))
+                .build()));
+        revocationList.sync();
+
+        assertTrue(revocationList.isRevoked(claims("a", "alice", new Date(second - 1000))), "earlier second");
+        // iat is truncated to the second, so a token issued just after the cutoff looks like one issued
+        // just before it; both are kept (the caller's own token is revoked by jti instead)
+        assertFalse(revocationList.isRevoked(claims("b", "alice", new Date(second))), "same second");
+        assertFalse(revocationList.isRevoked(claims("c", "alice", new Date(second + 1000))), "later second");
+        assertFalse(revocationList.isRevoked(claims("d", "bob", new Date(second - 1000))), "other user");
+    }
+
+    @Test
+    void revokeAllForUserCoversTokensIssuedBeforeNow() {
+        long now = System.currentTimeMillis();
+        revocationList.revokeAllForUser("alice");
+
+        assertTrue(revocationList.isRevoked(claims("a", "alice", new Date(now - 2000))));
+        assertFalse(revocationList.isRevoked(claims("b", "alice", new Date(now + 2000))));
+    }
+
+    @Test
+    void syncPurgesExpiredEntriesAndRebuildsFilter() {
+        long now = System.currentTimeMillis();
+        revocationList.revokeToken("expired", "alice", new Date(now - 1000));
+        revocationList.revokeToken("live", "alice", new Date(now + 60_000));
+        Object filterBefore = ReflectionTestUtils.getField(revocationList, "filter");
+
+        revocationList.sync();
+
+        assertNotSame(filterBefore, ReflectionTestUtils.getField(revocationList, "filter"));
+        assertFalse(revocationList.isRevoked(claims("expired", "alice", new Date(now))));
+        assertTrue(revocationList.isRevoked(claims("live", "alice", new Date(now))));
+    }
+
+    @Test
+    void syncPicksUpRevocationsFromOtherInstances() {
+        when(revokedTokenRepo.findByRevokedAtAfter(any(Instant.class))).thenReturn(List.of(RevokedToken.builder()
+                .id("jti-remote")
+                .userId("alice")
+                .revokedAt(Instant.now())
+                .expiresAt(new Date(System.currentTimeMillis() + 60_000))
+                .build()));
+
+        revocationList.sync();
+
+        assertTrue(revocationList.isRevoked(claims("jti-remote", "alice", new Date())));
+    }
+
+    private static Claims claims(String tokenId, String userId, Date issuedAt) {
+        Claims claims = mock(Claims.class);
+        when(claims.getId()).thenReturn(tokenId);
+        when(claims.getSubject()).thenReturn(userId);
+        when(claims.getIssuedAt()).thenReturn(issuedAt);
+        return claims;
+    }
+}
@@ -0,0 +1,180 @@
+package com.nagesh.notes.smartnotes.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.nagesh.notes.smartnotes.model.Note;
+import com.nagesh.notes.smartnotes.model.NoteUpdateRequest;
+import com.nagesh.notes.smartnotes.repository.NoteRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AutosaveBufferTest {
+
+    @TempDir
+    Path dir;
+
+    private final NoteRepository noteRepo = mock(NoteRepository.class);
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BulkOperations bulk = mock(BulkOperations.class);
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private AutosaveBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new AutosaveBuffer(dir.resolve("autosave.journal").toString());
+        ReflectionTestUtils.setField(buffer, "noteRepo", noteRepo);
+        ReflectionTestUtils.setField(buffer, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(buffer, "similarityService", mock(SimilarityService.class));
+        ReflectionTestUtils.setField(buffer, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(buffer, "debounceMs", 2000L);
+        ReflectionTestUtils.setField(buffer, "maxDelayMs", 30000L);
+        // Both notes belong to u1 and are at content version 3
+        when(mongoTemplate.findOne(any(Query.class), eq(Note.class))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            return "u1".equals(query.getQueryObject().get("userId"))
+                    ? Note.builder().id((String) query.getQueryObject().get("_id")).userId("u1").version(3).build()
+                    : null;
+        });
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Note.class))).thenReturn(bulk);
+    }
+
+    private NoteUpdateRequest body(String json) throws Exception {
+        return objectMapper.readValue(json, NoteUpdateRequest.class);
+    }
+
+    // Replay the journal into a fresh buffer, as after a crash, and return the filter of its write
+    private Document replayedFilter(Path journal) {
+        BulkOperations replayBulk = mock(BulkOperations.class);
+        MongoTemplate replayTemplate = mock(MongoTemplate.class);
+        when(replayTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Note.class))).thenReturn(replayBulk);
+        AutosaveBuffer restarted = new AutosaveBuffer(journal.toString());
+        ReflectionTestUtils.setField(restarted, "noteRepo", noteRepo);
+        ReflectionTestUtils.setField(restarted, "mongoTemplate", replayTemplate);
+        ReflectionTestUtils.setField(restarted, "similarityService", mock(SimilarityService.class));
+        ReflectionTestUtils.setField(restarted, "objectMapper", objectMapper);
+
+        restarted.replayJournal();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(replayBulk).updateOne(query.capture(), any(Update.class));
+        return query.getValue().getQueryObject();
+    }
+
+    @Test
+    void autosaveWithContentOnlyKeepsTags() throws Exception {
+        assertTrue(buffer.buffer("n1", "u1", body("{\"content\": \"new text\"}")));
+
+        Note note = Note.builder().id("n1").userId("u1").content("old").tags(List.of("work")).build();
+        buffer.overlay(note);
+
+        assertEquals("new text", note.getContent());
+        assertEquals(List.of("work"), note.getTags());
+        assertNull(buffer.take("n1", "u1").orElseThrow().tags());
+    }
+
+    @Test
+    void autosaveOfAnotherUsersNoteIsRejected() throws Exception {
+        assertFalse(buffer.buffer("n1", "intruder", body("{\"content\": \"x\"}")));
+        assertTrue(buffer.take("n1", "intruder").isEmpty());
+    }
+
+    @Test
+    void editsToTheSameNoteMergeNewestFieldFirst() throws Exception {
+        buffer.buffer("n1", "u1", body("{\"title\": \"Draft\", \"content\": \"one\"}"));
+        buffer.buffer("n1", "u1", body("{\"content\": \"two\", \"tags\": [\"work\"]}"));
+
+        AutosaveBuffer.PendingEdit edit = buffer.take("n1", "u1").orElseThrow();
+        assertEquals("Draft", edit.title());
+        assertEquals("two", edit.content());
+        assertEquals(List.of("work"), edit.tags());
+        assertFalse(edit.firstQueuedAt().isAfter(edit.lastQueuedAt()));
+    }
+
+    @Test
+    void failedWriteStaysReadableAndGoesBackUnderNewerEdits() throws Exception {
+        when(bulk.execute()).thenAnswer(invocation -> {
+            // Claimed but not written yet: reads still see it
+            Note note = Note.builder().id("n1").userId("u1").title("old").content("old").build();
+            buffer.overlay(note);
+            assertEquals("Draft", note.getTitle());
+            assertEquals("one", note.getContent());
+
+            buffer.buffer("n1", "u1", body("{\"content\": \"two\"}"));
+            throw new IllegalStateException("mongo down");
+        });
+        buffer.buffer("n1", "u1", body("{\"title\": \"Draft\", \"content\": \"one\"}"));
+
+        buffer.flush("n1", "u1");
+
+        AutosaveBuffer.PendingEdit edit = buffer.take("n1", "u1").orElseThrow();
+        assertEquals("Draft", edit.title());
+        assertEquals("two", edit.content());
+    }
+
+    @Test
+    void writeOfOneNoteDoesNotBlockAnother() throws Exception {
+        when(bulk.execute()).thenAnswer(invocation -> {
+            Optional<AutosaveBuffer.PendingEdit> other = CompletableFuture
+                    .supplyAsync(() -> buffer.take("n2", "u1"))
+                    .get(5, TimeUnit.SECONDS);
+            assertTrue(other.isPresent());
+            return null;
+        });
+        buffer.buffer("n1", "u1", body("{\"content\": \"one\"}"));
+        buffer.buffer("n2", "u1", body("{\"content\": \"two\"}"));
+
+        buffer.flush("n1", "u1");
+
+        verify(bulk).execute();
+        assertTrue(buffer.take("n1", "u1").isEmpty());
+    }
+
+    @Test
+    void replayAppliesOnlyAtTheVersionTheEditStartedFrom() throws Exception {
+        buffer.buffer("n1", "u1", body("{\"content\": \"unsaved\"}"));
+
+        Document filter = replayedFilter(dir.resolve("autosave.journal"));
+
+        // Conditional on the content version, not on updatedAt (which pins and attachments bump)
+        assertEquals(List.of(new Document("version", 3L)), filter.get("$and"));
+        assertFalse(filter.containsKey("updatedAt"));
+        assertFalse(filter.containsKey("$or"));
+    }
+
+    @Test
+    void replayCoversAWindowStartedDuringAnInterruptedWrite() throws Exception {
+        Path crashed = dir.resolve("crashed.journal");
+        when(bulk.execute()).thenAnswer(invocation -> {
+            // The next window starts from the version this write will produce
+            buffer.buffer("n1", "u1", body("{\"content\": \"two\"}"));
+            // Crash before the write is acknowledged
+            Files.copy(dir.resolve("autosave.journal"), crashed);
+            return null;
+        });
+        buffer.buffer("n1", "u1", body("{\"content\": \"one\"}"));
+        buffer.flush("n1", "u1");
+
+        Document filter = replayedFilter(crashed);
+
+        assertEquals(List.of(new Document("version", new Document("$gte", 3L).append("$lte", 4L))),
+                filter.get("$and"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.nagesh.notes.smartnotes.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private static ByteArrayInputStream bytes(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long blobCount() throws Exception {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> !file.startsWith(dir.resolve("tmp")))
+                    .count();
+        }
+    }
+
+    @Test
+    void identicalUploadsShareOneBlob() throws Exception {
+        BlobStore store = new BlobStore(dir.toString(), 1024);
+
+        BlobStore.StoredBlob first = store.store(bytes("hello attachments"));
+        BlobStore.StoredBlob second = store.store(bytes("hello attachments"));
+
+        assertEquals(first, second);
+        assertEquals(17, first.size());
+        assertEquals(1, blobCount());
+        assertEquals("hello attachments", Files.readString(store.find(first.hash()).orElseThrow()));
+    }
+
+    @Test
+    void differentContentGetsDifferentBlobs() throws Exception {
+        BlobStore store = new BlobStore(dir.toString(), 1024);
+
+        assertNotEquals(store.store(bytes("one")).hash(), store.store(bytes("two")).hash());
+        assertEquals(2, blobCount());
+    }
+
+    @Test
+    void uploadAtTheLimitIsAccepted() throws Exception {
+        BlobStore store = new BlobStore(dir.toString(), 8);
+
+        assertEquals(8, store.store(bytes("12345678")).size());
+    }
+
+    @Test
+    void uploadOverTheLimitIsRejectedAndLeavesNothingBehind() throws Exception {
+        BlobStore store = new BlobStore(dir.toString(), 8);
+
+        assertThrows(IllegalArgumentException.class, () -> store.store(bytes("123456789")));
+        assertEquals(0, blobCount());
+        try (Stream<Path> parts = Files.list(dir.resolve("tmp"))) {
+            assertEquals(0, parts.count());
+        }
+    }
+
+    @Test
+    void findOnlyAcceptsHashes() throws Exception {
+        BlobStore store = new BlobStore(dir.toString(), 1024);
+        store.store(bytes("x"));
+
+        assertTrue(store.find("../tmp").isEmpty());
+        assertTrue(store.find("A".repeat(64)).isEmpty());
+        assertTrue(store.find(null).isEmpty());
+    }
+}
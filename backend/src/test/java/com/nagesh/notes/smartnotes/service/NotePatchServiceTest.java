@@ -0,0 +1,125 @@
+package com.nagesh.notes.smartnotes.service;
+
+import com.nagesh.notes.smartnotes.model.EditSpan;
+import com.nagesh.notes.smartnotes.model.NoteChange;
+import com.nagesh.notes.smartnotes.model.NotePatchRequest;
+import com.nagesh.notes.smartnotes.model.TextEdit;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotePatchServiceTest {
+
+    private static NoteChange change(EditSpan... spans) {
+        return NoteChange.builder().edits(List.of(spans)).build();
+    }
+
+    private static NoteChange fullReplace() {
+        return NoteChange.builder().fullReplace(true).build();
+    }
+
+    @Test
+    void editsAgainstCurrentVersionAreAppliedAsIs() {
+        List<TextEdit> edits = List.of(new TextEdit(0, 5, "Hi"), new TextEdit(11, 11, "!"));
+
+        List<TextEdit> rebased = NotePatchService.rebase(edits, List.of(change(new EditSpan(0, 0, 3))), 0, 7);
+
+        assertSame(edits, rebased);
+        assertEquals("Hi world!", NotePatchService.apply("hello world", rebased));
+    }
+
+    @Test
+    void insertAtSameOffsetAsConcurrentInsertLandsAfterIt() {
+        // base "hello world"; another client inserted "big " at 6
+        String current = "hello big world";
+        List<TextEdit> edits = List.of(new TextEdit(6, 6, "brave "));
+
+        List<TextEdit> rebased = NotePatchService.rebase(edits, List.of(change(new EditSpan(6, 6, 4))), 1, 2);
+
+        assertEquals("hello big brave world", NotePatchService.apply(current, rebased));
+    }
+
+    @Test
+    void editsNextToConcurrentDeleteAreShifted() {
+        // base "hello cruel world"; another client deleted "cruel " [6, 12)
+        String current = "hello world";
+        List<TextEdit> edits = List.of(new TextEdit(0, 6, "bye "), new TextEdit(12, 17, "there"));
+
+        List<TextEdit> rebased = NotePatchService.rebase(edits, List.of(change(new EditSpan(6, 12, 0))), 1, 5);
+
+        assertEquals(List.of(new TextEdit(0, 6, "bye "), new TextEdit(6, 11, "there")), rebased);
+        assertEquals("bye there", NotePatchService.apply(current, rebased));
+    }
+
+    @Test
+    void rebasesAcrossSeveralVersionsInOrder() {
+        // base "a b c"; v2 replaced "a" with "xyz", v3 deleted "b "
+        List<NoteChange> log = List.of(change(new EditSpan(0, 1, 3)), change(new EditSpan(4, 6, 0)));
+        List<TextEdit> edits = List.of(new TextEdit(4, 5, "C"));
+
+        List<TextEdit> rebased = NotePatchService.rebase(edits, log, 2, 3);
+
+        assertEquals("xyz C", NotePatchService.apply("xyz c", rebased));
+    }
+
+    @Test
+    void overlappingConcurrentChangeIsAConflict() {
+        List<TextEdit> edits = List.of(new TextEdit(8, 10, "XX"));
+
+        PatchConflictException e = assertThrows(PatchConflictException.class,
+                () -> NotePatchService.rebase(edits, List.of(change(new EditSpan(6, 12, 0))), 1, 4));
+        assertEquals(4, e.getCurrentVersion());
+    }
+
+    @Test
+    void insertInsideConcurrentReplaceIsAConflict() {
+        List<TextEdit> edits = List.of(new TextEdit(3, 3, "!"));
+
+        assertThrows(PatchConflictException.class,
+                () -> NotePatchService.rebase(edits, List.of(change(new EditSpan(2, 5, 1))), 1, 2));
+    }
+
+    @Test
+    void baseOlderThanLogIsAConflict() {
+        List<NoteChange> log = List.of(change(new EditSpan(0, 0, 1)), change(new EditSpan(0, 0, 1)));
+
+        PatchConflictException e = assertThrows(PatchConflictException.class,
+                () -> NotePatchService.rebase(List.of(new TextEdit(0, 0, "x")), log, 3, 60));
+        assertEquals(60, e.getCurrentVersion());
+    }
+
+    @Test
+    void fullReplaceInMissedRangeIsAConflict() {
+        List<NoteChange> log = List.of(fullReplace(), change(new EditSpan(0, 0, 2)));
+        List<TextEdit> edits = List.of(new TextEdit(1, 1, "x"));
+
+        assertThrows(PatchConflictException.class, () -> NotePatchService.rebase(edits, log, 2, 9));
+        // A patch made after the full replace only rebases over the later change
+        assertEquals(List.of(new TextEdit(3, 3, "x")), NotePatchService.rebase(edits, log, 1, 9));
+    }
+
+    @Test
+    void malformedEditsAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> NotePatchService.apply("abc", List.of(new TextEdit(2, 1, "x"))));
+        assertThrows(IllegalArgumentException.class,
+                () -> NotePatchService.apply("abc", List.of(new TextEdit(1, 4, "x"))));
+        assertThrows(IllegalArgumentException.class,
+                () -> NotePatchService.apply("abc", List.of(new TextEdit(-1, 1, "x"))));
+    }
+
+    @Test
+    void overlappingEditsInOnePatchAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> NotePatchService.apply("abcdef", List.of(new TextEdit(0, 3, "x"), new TextEdit(2, 4, "y"))));
+    }
+
+    @Test
+    void patchWithoutBaseVersionIsRejected() {
+        NotePatchRequest patch = new NotePatchRequest(null, List.of(new TextEdit(0, 0, "x")), null);
+
+        assertThrows(IllegalArgumentException.class, () -> new NotePatchService().patchNote("n1", patch, "u1"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.nagesh.notes.smartnotes.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.nagesh.notes.smartnotes.model.Note;
+import com.nagesh.notes.smartnotes.model.NoteUpdateRequest;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class NoteServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final AutosaveBuffer autosaveBuffer = mock(AutosaveBuffer.class);
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final NoteService noteService = new NoteService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(noteService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(noteService, "autosaveBuffer", autosaveBuffer);
+        ReflectionTestUtils.setField(noteService, "similarityService", mock(SimilarityService.class));
+        when(autosaveBuffer.take("n1", "u1")).thenReturn(Optional.empty());
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Note.class)))
+                .thenReturn(Note.builder().id("n1").userId("u1").build());
+    }
+
+    // The $set document of the update written by updateNote
+    private Document updatedFields(String json) throws Exception {
+        noteService.updateNote("n1", objectMapper.readValue(json, NoteUpdateRequest.class), "u1");
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class), eq(Note.class));
+        return update.getValue().getUpdateObject().get("$set", Document.class);
+    }
+
+    @Test
+    void putWithoutTagsKeepsTags() throws Exception {
+        Document set = updatedFields("{\"title\": \"Plan\", \"content\": \"Agenda\"}");
+
+        assertEquals("Plan", set.get("title"));
+        assertEquals("Agenda", set.get("content"));
+        assertFalse(set.containsKey("tags"));
+        assertFalse(set.containsKey("reminder"));
+    }
+
+    @Test
+    void putWithEmptyTagsClearsTags() throws Exception {
+        Document set = updatedFields("{\"tags\": []}");
+
+        assertEquals(List.of(), set.get("tags"));
+        assertFalse(set.containsKey("content"));
+    }
+
+    @Test
+    void putWritesPendingAutosaveFieldsItDoesNotOverride() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        when(autosaveBuffer.take("n1", "u1")).thenReturn(Optional.of(new AutosaveBuffer.PendingEdit(
+                "n1", "u1", "Draft title", "draft", List.of("draft-tag"), null, now, now, 0L)));
+
+        Document set = updatedFields("{\"content\": \"final\"}");
+
+        assertEquals("Draft title", set.get("title"));
+        assertEquals("final", set.get("content"));
+        assertEquals(List.of("draft-tag"), set.get("tags"));
+    }
+}
@@ -0,0 +1,99 @@
+package com.nagesh.notes.smartnotes.service;
+
+import com.nagesh.notes.smartnotes.model.RefreshSession;
+import com.nagesh.notes.smartnotes.repository.RefreshSessionRepository;
+import com.nagesh.notes.smartnotes.security.JwtUtil;
+import com.nagesh.notes.smartnotes.security.TokenRevocationList;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SessionServiceTest {
+
+    private RefreshSessionRepository sessionRepository;
+    private MongoTemplate mongoTemplate;
+    private TokenRevocationList revocationList;
+    private JwtUtil jwtUtil;
+    private SessionService sessionService;
+
+    @BeforeEach
+    void setUp() {
+        sessionRepository = mock(RefreshSessionRepository.class);
+        mongoTemplate = mock(MongoTemplate.class);
+        revocationList = mock(TokenRevocationList.class);
+        jwtUtil = mock(JwtUtil.class);
+        when(jwtUtil.generateToken("alice")).thenReturn("access-token");
+        sessionService = new SessionService(sessionRepository, mongoTemplate, revocationList, jwtUtil, 60_000);
+    }
+
+    @Test
+    void refreshConsumesTheSessionAndIssuesANewPair() {
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(RefreshSession.class))).thenReturn(session(60_000));
+
+        Optional<SessionService.Tokens> tokens = sessionService.refresh("old-refresh-token");
+
+        assertTrue(tokens.isPresent());
+        assertEquals("access-token", tokens.get().accessToken());
+        assertNotEquals("old-refresh-token", tokens.get().refreshToken());
+        verify(sessionRepository).save(argThat(saved -> "alice".equals(saved.getUserId())));
+    }
+
+    @Test
+    void refreshWithAnAlreadyConsumedTokenFails() {
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(RefreshSession.class))).thenReturn(null);
+
+        assertTrue(sessionService.refresh("old-refresh-token").isEmpty());
+        verify(sessionRepository, never()).save(any(RefreshSession.class));
+    }
+
+    @Test
+    void refreshWithAnExpiredSessionFails() {
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(RefreshSession.class))).thenReturn(session(-1000));
+
+        assertTrue(sessionService.refresh("old-refresh-token").isEmpty());
+        verify(sessionRepository, never()).save(any(RefreshSession.class));
+    }
+
+    @Test
+    void logoutWithAnExpiredAccessTokenStillDropsTheRefreshSession() {
+        when(jwtUtil.parseToken("expired")).thenReturn(null);
+
+        sessionService.logout("expired", "refresh-token");
+
+        verify(sessionRepository).deleteByTokenHash(anyString());
+        verify(revocationList, never()).revokeToken(anyString(), anyString(), any(Date.class));
+    }
+
+    @Test
+    void logoutEverywhereAlsoRevokesTheCallersToken() {
+        Date expiresAt = new Date(System.currentTimeMillis() + 60_000);
+        Claims claims = mock(Claims.class);
+        when(claims.getId()).thenReturn("jti-1");
+        when(claims.getSubject()).thenReturn("alice");
+        when(claims.getExpiration()).thenReturn(expiresAt);
+        when(jwtUtil.parseToken("access-token")).thenReturn(claims);
+
+        sessionService.logoutEverywhere("alice", "access-token");
+
+        verify(sessionRepository).deleteByUserId("alice");
+        verify(revocationList).revokeAllForUser("alice");
+        verify(revocationList).revokeToken("jti-1", "alice", expiresAt);
+    }
+
+    private static RefreshSession session(long expiresInMs) {
+        return RefreshSession.builder()
+                .userId("alice")
+                .tokenHash("hash")
+                .expiresAt(new Date(System.currentTimeMillis() + expiresInMs))
+                .build();
+    }
+}
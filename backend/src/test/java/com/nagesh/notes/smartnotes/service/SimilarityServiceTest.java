@@ -0,0 +1,108 @@
+package com.nagesh.notes.smartnotes.service;
+
+import com.nagesh.notes.smartnotes.model.Note;
+import com.nagesh.notes.smartnotes.repository.NoteRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SimilarityServiceTest {
+
+    private static final String TEXT = "The quarterly planning meeting covered hiring, the office move, "
+            + "the new billing system rollout and a review of last quarter's customer support backlog. "
+            + "Action items were assigned to each team lead with a follow up scheduled for next week.";
+
+    private static Note note(String title, String content) {
+        return Note.builder().title(title).content(content).build();
+    }
+
+    private static double agreement(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) same++;
+        }
+        return (double) same / a.length;
+    }
+
+    @Test
+    void sameWordsGiveSameSignature() {
+        int[] a = SimilarityService.signature(note("Planning", TEXT));
+        int[] b = SimilarityService.signature(note("PLANNING", TEXT.toUpperCase().replace(",", " ;")));
+
+        assertArrayEquals(a, b);
+    }
+
+    @Test
+    void nearDuplicatesAgreeOnMostHashes() {
+        int[] a = SimilarityService.signature(note("Planning", TEXT));
+        int[] b = SimilarityService.signature(note("Planning", TEXT.replace("next week", "next month")));
+
+        assertTrue(agreement(a, b) > 0.7);
+    }
+
+    @Test
+    void unrelatedNotesAgreeOnFewHashes() {
+        int[] a = SimilarityService.signature(note("Planning", TEXT));
+        int[] b = SimilarityService.signature(note("Groceries", "milk eggs bread butter coffee apples spinach rice"));
+
+        assertTrue(agreement(a, b) < 0.1);
+    }
+
+    @Test
+    void shortNotesStillGetASignature() {
+        assertNotNull(SimilarityService.signature(note("todo", null)));
+        assertNotNull(SimilarityService.signature(note(null, "buy milk")));
+    }
+
+    @Test
+    void notesWithoutWordsHaveNoSignature() {
+        assertNull(SimilarityService.signature(note(null, null)));
+        assertNull(SimilarityService.signature(note("", "   ")));
+        assertNull(SimilarityService.signature(note("!!!", "😀 🎉 ... ---")));
+    }
+
+    @Test
+    void updatesMadeWhileTheIndexLoadsAreKept() {
+        NoteRepository noteRepo = mock(NoteRepository.class);
+        SimilarityService service = new SimilarityService();
+        ReflectionTestUtils.setField(service, "noteRepo", noteRepo);
+
+        Note planning = Note.builder().id("a").userId("alice").title("Planning").content(TEXT).build();
+        Note groceries = Note.builder().id("b").userId("alice").title("Groceries")
+                .content("milk eggs bread butter coffee apples spinach rice").build();
+        Note deleted = Note.builder().id("c").userId("alice").title("Planning copy").content(TEXT).build();
+        // While the notes are read, "b" is rewritten into a copy of "a" and "c" is deleted;
+        // the read still returns their older versions
+        when(noteRepo.findByUserId("alice")).thenAnswer(invocation -> {
+            assertTrue(service.isIndexed("alice"));
+            service.index(Note.builder().id("b").userId("alice").title("Planning").content(TEXT).build());
+            service.remove("c", "alice");
+            return List.of(planning, groceries, deleted);
+        });
+
+        List<SimilarityService.SimilarNote> related = service.findRelated("a", "alice", 10).orElseThrow();
+
+        assertEquals(1, related.size());
+        assertEquals("b", related.get(0).noteId());
+        assertEquals(1.0, related.get(0).similarity());
+        assertTrue(service.findRelated("c", "alice", 10).isEmpty());
+    }
+
+    @Test
+    void failedLoadIsRetriedOnTheNextLookup() {
+        NoteRepository noteRepo = mock(NoteRepository.class);
+        SimilarityService service = new SimilarityService();
+        ReflectionTestUtils.setField(service, "noteRepo", noteRepo);
+        when(noteRepo.findByUserId("alice"))
+                .thenThrow(new IllegalStateException("mongo down"))
+                .thenReturn(List.of());
+
+        assertThrows(IllegalStateException.class, () -> service.findDuplicates("alice"));
+        assertFalse(service.isIndexed("alice"));
+        assertTrue(service.findDuplicates("alice").isEmpty());
+    }
+}
@@ -0,0 +1,174 @@
+package com.nagesh.notes.smartnotes.service;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.ReplaceOptions;
+import com.nagesh.notes.smartnotes.service.TimelineService.Bucket;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TimelineServiceTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+    private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+
+    private static ZonedDateTime at(String localDateTime, ZoneId zone) {
+        return ZonedDateTime.of(LocalDateTime.parse(localDateTime), zone);
+    }
+
+    @Test
+    void dayAcrossSpringForwardIs23Hours() {
+        ZonedDateTime start = Bucket.DAY.truncate(at("2024-03-10T15:30", NEW_YORK));
+        ZonedDateTime next = Bucket.DAY.next(start);
+
+        assertEquals(at("2024-03-10T00:00", NEW_YORK), start);
+        assertEquals(at("2024-03-11T00:00", NEW_YORK), next);
+        assertEquals(Duration.ofHours(23), Duration.between(start, next));
+    }
+
+    @Test
+    void dayStartsAfterAMissingMidnight() {
+        // Sao Paulo skipped from 00:00 to 01:00 on 2018-11-04
+        ZoneId saoPaulo = ZoneId.of("America/Sao_Paulo");
+        ZonedDateTime start = Bucket.DAY.truncate(at("2018-11-04T12:00", saoPaulo));
+
+        assertEquals(1, start.getHour());
+        assertEquals(4, start.getDayOfMonth());
+        assertEquals(Duration.ofHours(23), Duration.between(start, Bucket.DAY.next(start)));
+    }
+
+    @Test
+    void hourSkipsTheSpringForwardGap() {
+        ZonedDateTime start = Bucket.HOUR.truncate(at("2024-03-10T01:45", NEW_YORK));
+        ZonedDateTime next = Bucket.HOUR.next(start);
+
+        assertEquals(3, next.getHour());
+        assertEquals(Duration.ofHours(1), Duration.between(start, next));
+    }
+
+    @Test
+    void hourKeepsTheRepeatedFallBackHourApart() {
+        ZonedDateTime first = at("2024-11-03T01:30", NEW_YORK).withEarlierOffsetAtOverlap();
+        ZonedDateTime second = first.withLaterOffsetAtOverlap();
+
+        ZonedDateTime firstStart = Bucket.HOUR.truncate(first);
+        ZonedDateTime secondStart = Bucket.HOUR.truncate(second);
+
+        assertEquals(Duration.ofHours(1), Duration.between(firstStart, secondStart));
+        assertEquals(secondStart, Bucket.HOUR.next(firstStart));
+    }
+
+    @Test
+    void weekAcrossFallBackIs169Hours() {
+        // Berlin fell back on Sunday 2024-10-27
+        ZonedDateTime start = Bucket.WEEK.truncate(at("2024-10-24T09:00", BERLIN));
+        ZonedDateTime next = Bucket.WEEK.next(start);
+
+        assertEquals(at("2024-10-21T00:00", BERLIN), start);
+        assertEquals(at("2024-10-28T00:00", BERLIN), next);
+        assertEquals(Duration.ofHours(169), Duration.between(start, next));
+    }
+
+    @Test
+    void monthAcrossSpringForwardEndsAtLocalMidnight() {
+        ZonedDateTime start = Bucket.MONTH.truncate(at("2024-03-20T08:00", NEW_YORK));
+
+        assertEquals(at("2024-03-01T00:00", NEW_YORK), start);
+        assertEquals(at("2024-04-01T00:00", NEW_YORK), Bucket.MONTH.next(start));
+    }
+
+    @Test
+    void hourlyCountersNeedWholeHourRangeBoundaries() {
+        Instant from = Instant.parse("2024-03-01T00:00:00Z");
+
+        assertTrue(TimelineService.canUseHourlyCounters(ZoneId.of("UTC"), from, from.plus(Duration.ofDays(31))));
+        assertFalse(TimelineService.canUseHourlyCounters(ZoneId.of("UTC"), from.plusSeconds(60), from.plus(Duration.ofDays(1))));
+        assertFalse(TimelineService.canUseHourlyCounters(ZoneId.of("UTC"), from, from.plus(Duration.ofMinutes(90))));
+    }
+
+    @Test
+    void hourlyCountersWorkAcrossWholeHourDstChanges() {
+        assertTrue(TimelineService.canUseHourlyCounters(NEW_YORK,
+                Instant.parse("2024-03-01T05:00:00Z"), Instant.parse("2024-12-01T05:00:00Z")));
+    }
+
+    @Test
+    void hourlyCountersAreNotUsedForFractionalHourOffsets() {
+        assertFalse(TimelineService.canUseHourlyCounters(ZoneId.of("Asia/Kolkata"),
+                Instant.parse("2024-03-01T00:00:00Z"), Instant.parse("2024-03-02T00:00:00Z")));
+
+        // Lord Howe Island is +11 in summer and +10:30 in winter
+        ZoneId lordHowe = ZoneId.of("Australia/Lord_Howe");
+        assertTrue(TimelineService.canUseHourlyCounters(lordHowe,
+                Instant.parse("2024-01-01T00:00:00Z"), Instant.parse("2024-02-01T00:00:00Z")));
+        assertFalse(TimelineService.canUseHourlyCounters(lordHowe,
+                Instant.parse("2024-03-01T00:00:00Z"), Instant.parse("2024-05-01T00:00:00Z")));
+    }
+
+    @Test
+    void backfillWritesItsMarkerOnlyAfterSucceeding() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        MongoCollection<Document> notes = collection(mongoTemplate, "notes");
+        MongoCollection<Document> migrations = collection(mongoTemplate, "migrations");
+        FindIterable<Document> marker = mock(FindIterable.class);
+        when(migrations.find(any(Bson.class))).thenReturn(marker);
+        AggregateIterable<Document> merge = mock(AggregateIterable.class);
+        when(notes.aggregate(anyList())).thenReturn(merge);
+        TimelineService service = new TimelineService();
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+
+        // A failed run leaves no marker, so the next startup runs it again
+        doThrow(new MongoException("interrupted")).when(merge).toCollection();
+        service.backfillActivity();
+        verify(migrations, never()).replaceOne(any(Bson.class), any(Document.class), any(ReplaceOptions.class));
+
+        doNothing().when(merge).toCollection();
+        service.backfillActivity();
+        verify(migrations).replaceOne(any(Bson.class), any(Document.class), any(ReplaceOptions.class));
+
+        // Once done it is not run again
+        service.backfillActivity();
+        verify(merge, times(2)).toCollection();
+    }
+
+    @Test
+    void backfillOverwritesCountersInsteadOfSkippingNonEmptyCollections() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        MongoCollection<Document> notes = collection(mongoTemplate, "notes");
+        MongoCollection<Document> migrations = collection(mongoTemplate, "migrations");
+        when(migrations.find(any(Bson.class))).thenReturn(mock(FindIterable.class));
+        when(notes.aggregate(anyList())).thenReturn(mock(AggregateIterable.class));
+        TimelineService service = new TimelineService();
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+
+        service.backfillActivity();
+
+        ArgumentCaptor<List<Document>> pipeline = ArgumentCaptor.forClass(List.class);
+        verify(notes).aggregate(pipeline.capture());
+        Document merge = (Document) pipeline.getValue().get(pipeline.getValue().size() - 1).get("$merge");
+        assertEquals("replace", merge.get("whenMatched"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MongoCollection<Document> collection(MongoTemplate mongoTemplate, String name) {
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        when(mongoTemplate.getCollection(name)).thenReturn(collection);
+        return collection;
+    }
+}
@@ -6,7 +6,7 @@ import SearchBar from "./components/SearchBar";
 import NoteView from "./components/NoteView";
 import Login from "./auth/Login";
 import Register from "./auth/Register";
-import api from "./services/api";
+import api, { logoutSession } from "./services/api";
 import { jwtDecode } from "jwt-decode";
 import toast, { Toaster } from "react-hot-toast";
 
@@ -48,7 +48,8 @@ const App = () => {
     if (!token) return;
     try {
       const decoded = jwtDecode(token);
-      if (decoded.exp * 1000 < Date.now()) {
+      // An expired access token is renewed by the api interceptor while a refresh token exists
+      if (decoded.exp * 1000 < Date.now() && !localStorage.getItem("refreshToken")) {
         localStorage.removeItem("token");
         setToken("");
         toast.error("Session expired. Please login again.");
@@ -255,9 +256,12 @@ const App = () => {
               {token && (
                 <button
                   onClick={() => {
-                    localStorage.removeItem("token");
-                    setToken("");
-                    toast.success("Logged out successfully");
+                    logoutSession()
+                      .catch(() => {})
+                      .finally(() => {
+                        setToken("");
+                        toast.success("Logged out successfully");
+                      });
                   }}
                   className="px-4 py-2 bg-red-500 text-white rounded hover:bg-red-600"
                 >
@@ -18,7 +18,7 @@ function Login({ setToken }) {
     if (token) {
       try {
         const decoded = jwtDecode(token);
-        if (decoded.exp * 1000 < Date.now()) {
+        if (decoded.exp * 1000 < Date.now() && !localStorage.getItem("refreshToken")) {
           localStorage.removeItem("token");
           setToken(null);
           navigate("/login");
@@ -53,6 +53,7 @@ function Login({ setToken }) {
       const token = res.data.token;
 
       localStorage.setItem("token", token);
+      localStorage.setItem("refreshToken", res.data.refreshToken);
       setToken(token);
 
       toast.success("Login successful!");
@@ -12,15 +12,69 @@ api.interceptors.request.use(
     if (token) {
       config.headers.Authorization = `Bearer ${token}`;
     }
+    config._token = token; // lets a failed request tell whether the token changed since
     return config;
   },
   (error) => Promise.reject(error)
 );
 
+// Exchange the refresh token for a new token pair (plain axios: no expired Bearer header).
+// Refresh tokens are single use, so tabs take turns through a Web Lock, and a tab
+// that finds the token already replaced by another tab just uses the new one.
+let refreshPromise = null;
+const refreshTokens = (staleToken) => {
+  if (!refreshPromise) {
+    const run = async () => {
+      const current = localStorage.getItem("token");
+      if (current && current !== staleToken) {
+        return current;
+      }
+      const refreshToken = localStorage.getItem("refreshToken");
+      try {
+        const res = await axios.post(`${api.defaults.baseURL}/auth/refresh`, { refreshToken });
+        localStorage.setItem("token", res.data.token);
+        localStorage.setItem("refreshToken", res.data.refreshToken);
+        return res.data.token;
+      } catch (error) {
+        // Only drop the token we sent, not a newer one stored meanwhile
+        if (localStorage.getItem("refreshToken") === refreshToken) {
+          localStorage.removeItem("refreshToken");
+        }
+        throw error;
+      }
+    };
+    const locked = navigator.locks ? navigator.locks.request("smartnotes-token-refresh", run) : run();
+    refreshPromise = locked.finally(() => {
+      refreshPromise = null;
+    });
+  }
+  return refreshPromise;
+};
+
 // Global response interceptor
 api.interceptors.response.use(
   (response) => response,
-  (error) => {
+  async (error) => {
+    const original = error.config;
+    if (
+      error.response?.status === 401 &&
+      original &&
+      !original._retry &&
+      localStorage.getItem("refreshToken")
+    ) {
+      original._retry = true;
+      try {
+        await refreshTokens(original._token);
+        return api(original);
+      } catch (refreshError) {
+        // Another tab may have refreshed first (browsers without Web Locks)
+        const latest = localStorage.getItem("token");
+        if (latest && latest !== original._token) {
+          return api(original);
+        }
+      }
+    }
+
     if (!navigator.onLine) {
       console.warn("You are offline. API request failed:", error);
     } else {
@@ -28,6 +82,7 @@ api.interceptors.response.use(
       if (status === 401 || status === 403) {
         // Token expired or unauthorized
         localStorage.removeItem("token");
+        localStorage.removeItem("refreshToken");
         window.location.href = "/login";
       }
       console.error("API error:", error.response?.data || error.message);
@@ -36,4 +91,25 @@ api.interceptors.response.use(
   }
 );
 
+// Revoke this session (plain axios like refreshTokens: a 401 here must not refresh and retry,
+// since that rotates the refresh token in the request body out from under the logout).
+// Takes the refresh lock so it sends the token another tab may have just rotated, and
+// clears the stored tokens only once the request has settled.
+export const logoutSession = async () => {
+  const run = async () => {
+    const token = localStorage.getItem("token");
+    try {
+      await axios.post(
+        `${api.defaults.baseURL}/auth/logout`,
+        { refreshToken: localStorage.getItem("refreshToken") },
+        { headers: token ? { Authorization: `Bearer ${token}` } : {} }
+      );
+    } finally {
+      localStorage.removeItem("token");
+      localStorage.removeItem("refreshToken");
+    }
+  };
+  return navigator.locks ? navigator.locks.request("smartnotes-token-refresh", run) : run();
+};
+
 export default api;
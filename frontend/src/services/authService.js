@@ -1,4 +1,4 @@
-import api from "./api";
+import api, { logoutSession } from "./api";
 
 // User registration
 export const registerUser = async (userData) => {
@@ -17,6 +17,7 @@ export const loginUser = async (credentials) => {
     const res = await api.post("/auth/login", credentials);
     if (res.data.token) {
       localStorage.setItem("token", res.data.token);
+      localStorage.setItem("refreshToken", res.data.refreshToken);
     }
     return res.data;
   } catch (err) {
@@ -37,7 +38,11 @@ export const getCurrentUser = async () => {
 };
 
 // Logout
-export const logoutUser = () => {
-  localStorage.removeItem("token");
+export const logoutUser = async () => {
+  try {
+    await logoutSession();
+  } catch (err) {
+    console.warn("Logout request failed:", err.message);
+  }
   window.location.href = "/login";
 };